@@ -0,0 +1,28 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the indexing, query and spell checking benchmarks with the GC profiler, which adds the allocation rate
+ * ({@code gc.alloc.rate}) and the bytes allocated per operation ({@code gc.alloc.rate.norm}) to every score.
+ *
+ * Run with: {@code java -cp target/benchmarks.jar bench.BenchmarkSuite [JMH options] [benchmark name patterns]}
+ */
+public class BenchmarkSuite {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(IndexingBenchmark.class.getSimpleName())
+                    .include(QueryBenchmark.class.getSimpleName())
+                    .include(SpellCheckBenchmark.class.getSimpleName());
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates synthetic text corpora of any size from the dictionary in {@code resources/words.txt}, the same
+ * word list as {@code test2.txt}. Words are drawn with log-uniform ranks, so a few words are very frequent and
+ * most are rare, roughly like natural text; a tenth of them are capitalized, and lines of about a dozen words
+ * are separated by punctuation. The same seed always produces the same corpus.
+ *
+ * Run with: {@code java -cp target/benchmarks.jar bench.CorpusGenerator <directory> [files] [wordsPerFile]}
+ */
+public class CorpusGenerator {
+    private final List<String> vocabulary;
+    private final Random random;
+
+    /**
+     * Constructor for CorpusGenerator.
+     * @param seed The seed of the random word sequence.
+     * @throws IOException If the dictionary cannot be read.
+     */
+    public CorpusGenerator(long seed) throws IOException {
+        this.vocabulary = Files.readAllLines(Paths.get("resources/words.txt"));
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return The dictionary words, most frequent first.
+     */
+    public List<String> vocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * @return The next random word.
+     */
+    public String word() {
+        return vocabulary.get((int) Math.pow(vocabulary.size(), random.nextDouble()) - 1);
+    }
+
+    /**
+     * @param fromRank The lowest rank to draw, where rank 0 is the most frequent word.
+     * @param toRank The rank after the highest rank to draw.
+     * @return A word drawn uniformly from the given ranks, for building queries of a known frequency.
+     */
+    public String word(int fromRank, int toRank) {
+        return vocabulary.get(fromRank + random.nextInt(Math.min(toRank, vocabulary.size()) - fromRank));
+    }
+
+    /**
+     * Writes a corpus of text files named {@code doc<n>.txt}.
+     *
+     * @param directory The directory to write to, which is created if missing.
+     * @param files The number of files.
+     * @param minWords The fewest words in a file.
+     * @param maxWords The most words in a file.
+     * @throws IOException If a file cannot be written.
+     */
+    public void writeCorpus(Path directory, int files, int minWords, int maxWords) throws IOException {
+        Files.createDirectories(directory);
+        for (int f = 0; f < files; f++) {
+            writeFile(directory.resolve("doc" + f + ".txt"), minWords + random.nextInt(maxWords - minWords + 1));
+        }
+    }
+
+    /**
+     * Writes one text file.
+     *
+     * @param file The file to write.
+     * @param words The number of words in the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeFile(Path file, int words) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < words; i++) {
+                String word = word();
+                if (random.nextInt(10) == 0) {
+                    word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                }
+                writer.write(word);
+                writer.write(i % 12 == 11 ? ".\n" : i % 5 == 4 ? ", " : " ");
+            }
+        }
+    }
+
+    /**
+     * Deletes a directory and everything in it.
+     * @param directory The directory to delete.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: bench.CorpusGenerator <directory> [files] [wordsPerFile]");
+            System.exit(1);
+        }
+        int files = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int wordsPerFile = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        new CorpusGenerator(42).writeCorpus(Paths.get(args[0]), files, wordsPerFile, wordsPerFile);
+        System.out.printf("Wrote %d files of %d words to %s%n", files, wordsPerFile, args[0]);
+    }
+}
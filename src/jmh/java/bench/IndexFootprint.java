@@ -0,0 +1,99 @@
+package bench;
+
+import core.Indexer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compares the retained heap of the original {@code Map<String, Map<String, Integer>>} index layout
+ * with the document-ID based compressed layout used by {@link Indexer}.
+ *
+ * Run with: {@code java -cp target/benchmarks.jar bench.IndexFootprint [files] [wordsPerFile] [vocabularySize]}
+ */
+public class IndexFootprint {
+    public static void main(String[] args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int wordsPerFile = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int vocabularySize = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+
+        Path corpus = Files.createTempDirectory("index-footprint");
+        try {
+            writeCorpus(corpus, files, wordsPerFile, vocabularySize);
+
+            long before = usedHeap();
+            Map<String, Map<String, Integer>> legacy = buildLegacyIndex(corpus);
+            long legacyBytes = usedHeap() - before;
+            long legacyPostings = legacy.values().stream().mapToLong(Map::size).sum();
+            int legacyTerms = legacy.size();
+            legacy = null;
+
+            before = usedHeap();
+            Indexer indexer = new Indexer();
+            indexer.indexDirectory(corpus.toString());
+            long compactBytes = usedHeap() - before;
+
+            System.out.printf("Corpus: %d files, %d words per file, %d terms, %d postings%n",
+                    files, wordsPerFile, legacyTerms, legacyPostings);
+            System.out.printf("Map<String, Map<String, Integer>>: %,d bytes (%.1f bytes/posting)%n",
+                    legacyBytes, (double) legacyBytes / legacyPostings);
+            System.out.printf("Document IDs + compressed postings: %,d bytes (%.1f bytes/posting), estimate %,d bytes%n",
+                    compactBytes, (double) compactBytes / legacyPostings, indexer.ramBytesUsed());
+        } finally {
+            try (Stream<Path> paths = Files.walk(corpus)) {
+                paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void writeCorpus(Path directory, int files, int wordsPerFile, int vocabularySize) throws IOException {
+        Random random = new Random(42);
+        for (int f = 0; f < files; f++) {
+            try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("doc" + f + ".txt"))) {
+                for (int i = 0; i < wordsPerFile; i++) {
+                    // Squaring skews the distribution towards low term numbers, roughly like natural text
+                    double skewed = random.nextDouble() * random.nextDouble();
+                    writer.write("w" + (int) (skewed * vocabularySize));
+                    writer.write(i % 12 == 11 ? '\n' : ' ');
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the index exactly as the original Indexer did, with full paths and boxed counts per posting.
+     */
+    private static Map<String, Map<String, Integer>> buildLegacyIndex(Path directory) throws IOException {
+        Map<String, Map<String, Integer>> index = new HashMap<>();
+        Pattern pattern = Pattern.compile("\\w+");
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                String filePath = file.toString();
+                for (String line : Files.readAllLines(file)) {
+                    Matcher matcher = pattern.matcher(line);
+                    while (matcher.find()) {
+                        Map<String, Integer> fileCounts = index.computeIfAbsent(matcher.group().toLowerCase(), key -> new HashMap<>());
+                        fileCounts.merge(filePath, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,86 @@
+package bench;
+
+import core.Indexer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures phrase search latency in {@link Indexer#searchPhrase(String)} over a corpus of 5,000 files
+ * of 1,000 words each. Words are drawn from {@code resources/words.txt} with a skewed distribution, so a
+ * few words are very frequent as in natural text, and the phrases are cut from the generated files so that
+ * each has at least one match. A single-word search is included for reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhraseQueryBenchmark {
+    private static final int FILES = 5000;
+    private static final int WORDS_PER_FILE = 1000;
+
+    @Param({"2", "3", "4"})
+    public int phraseLength;
+
+    private Indexer indexer;
+    private Path corpusDirectory;
+    private String[] phrases;
+    private String[] singleWords;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> vocabulary = Files.readAllLines(Paths.get("resources/words.txt"));
+        Random random = new Random(11);
+        corpusDirectory = Files.createTempDirectory("phrase-query");
+        phrases = new String[256];
+        singleWords = new String[256];
+        for (int f = 0; f < FILES; f++) {
+            String[] words = new String[WORDS_PER_FILE];
+            for (int i = 0; i < words.length; i++) {
+                // Log-uniform ranks: low ranks are drawn far more often than high ones
+                words[i] = vocabulary.get((int) Math.pow(vocabulary.size(), random.nextDouble()) - 1);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(corpusDirectory.resolve("doc" + f + ".txt"))) {
+                writer.write(String.join(" ", words));
+            }
+            if (f % (FILES / phrases.length) == 0 && f / (FILES / phrases.length) < phrases.length) {
+                int slot = f / (FILES / phrases.length);
+                int start = random.nextInt(words.length - phraseLength);
+                List<String> phrase = new ArrayList<>(List.of(words).subList(start, start + phraseLength));
+                phrases[slot] = String.join(" ", phrase);
+                singleWords[slot] = phrase.get(0);
+            }
+        }
+        indexer = new Indexer(true);
+        indexer.indexDirectory(corpusDirectory.toString(), Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(corpusDirectory)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> phrase() {
+        return indexer.searchPhrase(phrases[next++ & (phrases.length - 1)]);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> singleWord() {
+        return indexer.search(singleWords[next++ & (singleWords.length - 1)]);
+    }
+}
@@ -0,0 +1,144 @@
+package bench;
+
+import core.Indexer;
+import core.QueryCache;
+import core.Search;
+import core.SpellChecker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the searches offered by the application over a generated corpus of 5,000 files
+ * with 200 to 2,000 words each, and of spelling suggestions from the application's dictionary.
+ *
+ * The searches call {@link Indexer} directly, because {@link Search} would answer repeated queries from its
+ * cache; {@code cachedExact} repeats 16 phrases to measure cache hits. Queries rotate through 256 variants:
+ * exact searches use a single word or two adjacent words cut from a generated file, comma-separated searches
+ * combine a common, a medium and a rare word, and wildcard searches use a three-letter prefix or suffix of a
+ * dictionary word.
+ *
+ * The {@code sharded} benchmarks run the same queries through a {@link Search} over 4 shards with its cache
+ * disabled, so they show the gain from searching the shards in parallel on a host with several cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    private static final int FILES = 5000;
+    private static final int QUERIES = 256;
+    // Few enough for all of their results to fit in the cache
+    private static final int CACHED_QUERIES = 16;
+    private static final int SHARDS = 4;
+
+    private Path corpusDirectory;
+    private Indexer indexer;
+    private Search search;
+    private Search shardedSearch;
+    private SpellChecker spellChecker;
+    private final String[] words = new String[QUERIES];
+    private final String[] phrases = new String[QUERIES];
+    private final String[] commaSeparated = new String[QUERIES];
+    private final String[] prefixes = new String[QUERIES];
+    private final String[] suffixes = new String[QUERIES];
+    private final String[] misspellings = new String[QUERIES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpusDirectory = Files.createTempDirectory("query");
+        CorpusGenerator generator = new CorpusGenerator(18);
+        generator.writeCorpus(corpusDirectory, FILES, 200, 2000);
+        indexer = new Indexer(true);
+        indexer.indexDirectory(corpusDirectory.toString(), Runtime.getRuntime().availableProcessors());
+        search = new Search(indexer);
+        List<Indexer> shards = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            shards.add(new Indexer(true));
+        }
+        shardedSearch = new Search(shards, new QueryCache(() -> 0, 0, 0));
+        shardedSearch.indexDirectory(corpusDirectory.toString(), Runtime.getRuntime().availableProcessors());
+        spellChecker = new SpellChecker("resources/words.txt");
+
+        Random random = new Random(18);
+        for (int i = 0; i < QUERIES; i++) {
+            String[] text = Files.readString(corpusDirectory.resolve("doc" + random.nextInt(FILES) + ".txt"))
+                    .split("[^A-Za-z0-9_]+");
+            int start = random.nextInt(text.length - 1);
+            words[i] = text[start];
+            phrases[i] = text[start] + " " + text[start + 1];
+            commaSeparated[i] = generator.word(0, 8) + ", " + generator.word(20, 220) + ", " + generator.word(500, Integer.MAX_VALUE);
+            String word = generator.word(0, Integer.MAX_VALUE).toLowerCase();
+            prefixes[i] = word.substring(0, Math.min(3, word.length())) + "*";
+            suffixes[i] = "*" + word.substring(Math.max(0, word.length() - 3));
+            char[] misspelled = word.toCharArray();
+            misspelled[random.nextInt(misspelled.length)] = (char) ('a' + random.nextInt(26));
+            misspellings[i] = new String(misspelled);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        shardedSearch.close();
+        CorpusGenerator.delete(corpusDirectory);
+    }
+
+    private int nextQuery() {
+        return next++ & (QUERIES - 1);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> exactWord() {
+        return indexer.searchPhrase(words[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> exactPhrase() {
+        return indexer.searchPhrase(phrases[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> cachedExact() {
+        return search.performSearch(phrases[next++ & (CACHED_QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> commaSeparated() {
+        return indexer.searchCommaSeparatedWords(commaSeparated[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> wildcardPrefix() {
+        return indexer.searchWithWildcards(prefixes[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> wildcardSuffix() {
+        return indexer.searchWithWildcards(suffixes[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> shardedExactWord() {
+        return shardedSearch.performSearch(words[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> shardedWildcardSuffix() {
+        return shardedSearch.performWildcardSearch(suffixes[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<String> spellSuggestion() {
+        return spellChecker.suggestCorrections(misspellings[nextQuery()]);
+    }
+}
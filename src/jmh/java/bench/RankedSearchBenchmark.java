@@ -0,0 +1,78 @@
+package bench;
+
+import core.Indexer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures BM25 ranking in {@link Indexer#searchRanked(String, int)} over a corpus of 5,000 files with
+ * 200 to 2,000 words each, drawn from {@code resources/words.txt} with a skewed distribution. Each query mixes
+ * one very common word with rarer ones. {@code top10} keeps the best 10 files and lets MaxScore skip files
+ * that cannot reach them; {@code allMatches} asks for every match, which scores and ranks them all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankedSearchBenchmark {
+    private static final int FILES = 5000;
+
+    private Indexer indexer;
+    private Path corpusDirectory;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> vocabulary = Files.readAllLines(Paths.get("resources/words.txt"));
+        Random random = new Random(13);
+        corpusDirectory = Files.createTempDirectory("ranked-search");
+        for (int f = 0; f < FILES; f++) {
+            int length = 200 + random.nextInt(1800);
+            try (BufferedWriter writer = Files.newBufferedWriter(corpusDirectory.resolve("doc" + f + ".txt"))) {
+                for (int i = 0; i < length; i++) {
+                    // Log-uniform ranks: low ranks are drawn far more often than high ones
+                    writer.write(vocabulary.get((int) Math.pow(vocabulary.size(), random.nextDouble()) - 1));
+                    writer.write(' ');
+                }
+            }
+        }
+        indexer = new Indexer();
+        indexer.indexDirectory(corpusDirectory.toString(), Runtime.getRuntime().availableProcessors());
+
+        queries = new String[64];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = vocabulary.get(random.nextInt(8)) + " "
+                    + vocabulary.get(20 + random.nextInt(200)) + " "
+                    + vocabulary.get(500 + random.nextInt(vocabulary.size() - 500));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(corpusDirectory)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Double>> top10() {
+        return indexer.searchRanked(queries[next++ & (queries.length - 1)], 10);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Double>> allMatches() {
+        return indexer.searchRanked(queries[next++ & (queries.length - 1)], Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,109 @@
+package bench;
+
+import core.SpellChecker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares suggestion latency of {@link SpellChecker} with the original linear scan, which computed
+ * a full Levenshtein matrix against every dictionary word.
+ *
+ * Dictionaries larger than {@code resources/words.txt} are padded with pseudo-words spliced together
+ * from a prefix of one real word and a suffix of another.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpellCheckBenchmark {
+    @Param({"2000", "100000", "500000"})
+    public int dictionarySize;
+
+    private SpellChecker spellChecker;
+    private List<String> dictionary;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(7);
+        List<String> seeds = new ArrayList<>();
+        for (String word : Files.readAllLines(Paths.get("resources/words.txt"))) {
+            seeds.add(word.toLowerCase());
+        }
+        Set<String> words = new LinkedHashSet<>(seeds.subList(0, Math.min(dictionarySize, seeds.size())));
+        while (words.size() < dictionarySize) {
+            String head = seeds.get(random.nextInt(seeds.size()));
+            String tail = seeds.get(random.nextInt(seeds.size()));
+            words.add(head.substring(0, 1 + random.nextInt(head.length())) + tail.substring(random.nextInt(tail.length())));
+        }
+        dictionary = new ArrayList<>(words);
+
+        Path file = Files.createTempFile("dictionary", ".txt");
+        Files.write(file, dictionary);
+        spellChecker = new SpellChecker(file.toString());
+        Files.delete(file);
+
+        // Misspell dictionary words with one or two random substitutions
+        queries = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            char[] word = dictionary.get(random.nextInt(dictionary.size())).toCharArray();
+            int edits = 1 + random.nextInt(2);
+            for (int e = 0; e < edits; e++) {
+                word[random.nextInt(word.length)] = (char) ('a' + random.nextInt(26));
+            }
+            queries[i] = new String(word);
+        }
+    }
+
+    @Benchmark
+    public List<String> bkTree() {
+        return spellChecker.suggestCorrections(queries[next++ & (queries.length - 1)]);
+    }
+
+    @Benchmark
+    public List<String> linearScan() {
+        String term = queries[next++ & (queries.length - 1)];
+        List<String> suggestions = new ArrayList<>();
+        int minDistance = Integer.MAX_VALUE;
+        if (dictionary.contains(term)) {
+            return suggestions;
+        }
+        for (String word : dictionary) {
+            int distance = fullMatrixDistance(term, word);
+            if (distance < minDistance) {
+                suggestions.clear();
+                suggestions.add(word);
+                minDistance = distance;
+            } else if (distance == minDistance) {
+                suggestions.add(word);
+            }
+        }
+        return suggestions;
+    }
+
+    private static int fullMatrixDistance(String s1, String s2) {
+        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) {
+            for (int j = 0; j <= s2.length(); j++) {
+                if (i == 0) {
+                    dp[i][j] = j;
+                } else if (j == 0) {
+                    dp[i][j] = i;
+                } else {
+                    dp[i][j] = Math.min(Math.min(dp[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1),
+                            dp[i - 1][j] + 1), dp[i][j - 1] + 1);
+                }
+            }
+        }
+        return dp[s1.length()][s2.length()];
+    }
+}
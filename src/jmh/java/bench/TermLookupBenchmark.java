@@ -0,0 +1,65 @@
+package bench;
+
+import core.Indexer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures exact-term lookup latency in {@link Indexer#search(String)} as the vocabulary grows.
+ * With a direct term dictionary lookup the score should stay flat across vocabulary sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TermLookupBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int vocabularySize;
+
+    private Indexer indexer;
+    private String presentTerm;
+    private Path corpusDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpusDirectory = Files.createTempDirectory("term-lookup");
+        int files = 4;
+        for (int f = 0; f < files; f++) {
+            try (BufferedWriter writer = Files.newBufferedWriter(corpusDirectory.resolve("doc" + f + ".txt"))) {
+                for (int i = f; i < vocabularySize; i += files) {
+                    writer.write("term" + i);
+                    writer.write(i % 16 == 15 ? '\n' : ' ');
+                }
+            }
+        }
+        indexer = new Indexer();
+        indexer.indexDirectory(corpusDirectory.toString());
+        presentTerm = "TERM" + (vocabularySize / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(corpusDirectory)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> presentTerm() {
+        return indexer.search(presentTerm);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> missingTerm() {
+        return indexer.search("absentterm");
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import core.Tokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the throughput of splitting text into lowercased words with the {@code \w+} regular expression
+ * the indexer used to run, against {@link Tokenizer}. The text holds 100,000 entries drawn from
+ * {@code resources/words.txt} with a skewed distribution, in mixed case and separated by spaces, punctuation
+ * and line breaks; scores are in words per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+    private static final int WORDS = 100_000;
+    private static final Pattern WORD_PATTERN = Pattern.compile("\\w+");
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> vocabulary = Files.readAllLines(Paths.get("resources/words.txt"));
+        Random random = new Random(16);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < WORDS; i++) {
+            // Log-uniform ranks: low ranks are drawn far more often than high ones
+            String word = vocabulary.get((int) Math.pow(vocabulary.size(), random.nextDouble()) - 1);
+            builder.append(i % 10 == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            builder.append(i % 16 == 15 ? ".\n" : i % 7 == 6 ? ", " : " ");
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void regex(Blackhole blackhole) {
+        Matcher matcher = WORD_PATTERN.matcher(text);
+        while (matcher.find()) {
+            blackhole.consume(matcher.group().toLowerCase());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void tokenizer(Blackhole blackhole) {
+        Tokenizer tokenizer = new Tokenizer(text);
+        String word;
+        while ((word = tokenizer.next()) != null) {
+            blackhole.consume(word);
+        }
+    }
+}
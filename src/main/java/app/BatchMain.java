@@ -0,0 +1,296 @@
+package app;
+
+import core.Indexer;
+import core.QueryCache;
+import core.Search;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BatchMain runs the search engine without a window: it indexes the given paths, then reads queries one per line
+ * from standard input or a file, runs them on several threads and writes one JSON object per query to standard
+ * output, in the order the queries were read.
+ *
+ * A query line may start with a mode prefix: {@code exact:} (the default), {@code comma:}, {@code wildcard:},
+ * {@code boolean:} or {@code ranked:}. Blank lines and lines starting with {@code #} are skipped. Indexing
+ * statistics and a throughput summary are written to standard error.
+ *
+ * Usage: {@code java -cp target/classes app.BatchMain [options] <path>...}
+ */
+public class BatchMain {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: app.BatchMain [options] <path>...",
+            "  --queries <file>    read queries from a file instead of standard input",
+            "  --threads <n>       number of query threads (default: available processors)",
+            "  --index-workers <n> number of indexing threads (default: available processors)",
+            "  --shards <n>        split the index into n shards searched in parallel (default: 1)",
+            "  --load <file>       load a saved index segment before indexing the paths; needs a single shard",
+            "  --limit <n>         results to print per query, 0 for none (default: 10)",
+            "  --ram-budget <mb>   spill postings to temporary files beyond this much memory (default: no limit)",
+            "  --no-cache          run every query against the index instead of the result cache");
+
+    private static final List<String> MODES = List.of("exact", "comma", "wildcard", "boolean", "ranked");
+
+    public static void main(String[] args) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        String queryFile = null;
+        String loadFile = null;
+        int threads = processors;
+        int indexWorkers = processors;
+        int shardCount = 1;
+        int limit = 10;
+        long ramBudget = 0;
+        boolean cache = true;
+        List<String> paths = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--queries":
+                        queryFile = args[++i];
+                        break;
+                    case "--threads":
+                        threads = Math.max(1, Integer.parseInt(args[++i]));
+                        break;
+                    case "--index-workers":
+                        indexWorkers = Math.max(1, Integer.parseInt(args[++i]));
+                        break;
+                    case "--shards":
+                        shardCount = Math.max(1, Integer.parseInt(args[++i]));
+                        break;
+                    case "--load":
+                        loadFile = args[++i];
+                        break;
+                    case "--limit":
+                        limit = Math.max(0, Integer.parseInt(args[++i]));
+                        break;
+                    case "--ram-budget":
+                        ramBudget = Math.max(0, Long.parseLong(args[++i])) * 1024 * 1024;
+                        break;
+                    case "--no-cache":
+                        cache = false;
+                        break;
+                    case "--help":
+                        System.out.println(USAGE);
+                        return;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        }
+                        paths.add(args[i]);
+                }
+            }
+            if (loadFile != null && shardCount > 1) {
+                throw new IllegalArgumentException("A saved index cannot be split into shards");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        List<Indexer> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            // Positions are recorded so that exact queries can match phrases
+            Indexer indexer = new Indexer(true);
+            indexer.setRamBudget(ramBudget / shardCount);
+            shards.add(indexer);
+        }
+        if (loadFile != null) {
+            try {
+                shards.get(0).load(loadFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+        // Nothing is cached without a cache, so its generation does not matter
+        Search search = cache ? new Search(shards) : new Search(shards, new QueryCache(() -> 0, 0, 0));
+        for (String path : paths) {
+            if (new File(path).isDirectory()) {
+                search.indexDirectory(path, indexWorkers);
+            } else {
+                try {
+                    for (Indexer shard : shards) {
+                        // Only the shard the file belongs to indexes it
+                        shard.indexFile(path);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        System.err.println(search.getMetrics().getIndexingStats());
+        System.err.printf("Index: %d documents, %d terms summed over %d shard(s)%n", search.getMetrics().getDocumentCount(),
+                search.getMetrics().getTermCount(), shardCount);
+
+        try (BufferedReader reader = queryFile != null
+                ? Files.newBufferedReader(Paths.get(queryFile), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+            runQueries(search, reader, out, threads, limit);
+            out.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        } finally {
+            search.close();
+        }
+    }
+
+    /**
+     * Runs the queries read from the reader on a pool of threads and writes their results in input order.
+     * At most a few queries per thread are in flight, so the queries can be streamed.
+     */
+    private static void runQueries(Search search, BufferedReader reader, PrintWriter out, int threads, int limit)
+            throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        long start = System.nanoTime();
+        int queries = 0;
+        int lineNumber = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                int number = lineNumber;
+                pending.add(executor.submit(() -> runQuery(search, number, trimmed, limit)));
+                queries++;
+                if (pending.size() > threads * 4) {
+                    out.println(await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                out.println(await(pending.poll()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Ran %d queries in %.3f s on %d thread(s): %.1f queries/sec%n",
+                queries, seconds, threads, seconds == 0 ? 0 : queries / seconds);
+    }
+
+    private static String await(Future<String> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            // runQuery reports failures in its output, so this is unexpected
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Runs one query line and formats its outcome as a JSON object.
+     */
+    private static String runQuery(Search search, int lineNumber, String line, int limit) {
+        String mode = "exact";
+        String query = line;
+        int colon = line.indexOf(':');
+        if (colon > 0 && MODES.contains(line.substring(0, colon))) {
+            mode = line.substring(0, colon);
+            query = line.substring(colon + 1).trim();
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"line\":").append(lineNumber)
+                .append(",\"mode\":").append(quote(mode))
+                .append(",\"query\":").append(quote(query));
+        long start = System.nanoTime();
+        try {
+            List<? extends Map.Entry<String, ? extends Number>> results;
+            switch (mode) {
+                case "comma":
+                    results = search.performCommaSeparatedSearch(query);
+                    break;
+                case "wildcard":
+                    results = search.performWildcardSearch(query);
+                    break;
+                case "boolean":
+                    results = search.performBooleanSearch(query);
+                    break;
+                case "ranked":
+                    results = search.performRankedSearch(query, Math.max(limit, 1));
+                    break;
+                default:
+                    results = search.performSearch(query);
+            }
+            long nanos = System.nanoTime() - start;
+            json.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6))
+                    .append(",\"hits\":").append(results.size())
+                    .append(",\"results\":[");
+            for (int i = 0; i < Math.min(limit, results.size()); i++) {
+                Map.Entry<String, ? extends Number> result = results.get(i);
+                json.append(i == 0 ? "" : ",")
+                        .append("{\"path\":").append(quote(result.getKey()))
+                        .append(",\"score\":").append(result.getValue())
+                        .append('}');
+            }
+            json.append(']');
+        } catch (RuntimeException e) {
+            long nanos = System.nanoTime() - start;
+            json.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6))
+                    .append(",\"error\":").append(quote(String.valueOf(e.getMessage())));
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Formats a string as a JSON string literal.
+     */
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
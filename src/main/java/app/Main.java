@@ -1,20 +1,104 @@
 package app;
 
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import core.Indexer;
 import core.Search;  // Make sure this import is correct
+import core.SearchMetrics;
 import core.SpellChecker;
 import ui.SearchUI;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+
 public class Main {
+    // The index is saved here on exit and memory-mapped on the next launch
+    private static final String INDEX_PATH = "index.seg";
+    // Changes to indexed files are applied once they have been quiet for this long
+    private static final long WATCH_DEBOUNCE_MILLIS = 500;
+    // Set once the window has saved the index, or the user chose to quit without it
+    private static volatile boolean saveHandled;
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
             String dictionaryPath = "resources/words.txt";
-            Indexer indexer = new Indexer();
+            // Positions are recorded so that the Exact tab can search phrases
+            Indexer indexer = new Indexer(true);
+            loadIndex(indexer);
+            try {
+                indexer.startWatching(WATCH_DEBOUNCE_MILLIS);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            // Picks up files changed while the application was closed, and watches the saved directories again
+            Thread refresh = new Thread(() -> indexer.refresh(Runtime.getRuntime().availableProcessors()), "index-refresh");
+            refresh.setDaemon(true);
+            refresh.start();
             Search search = new Search(indexer);
+            // For exits that do not go through the window, such as Ctrl+C, when no one is left to ask
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                search.close();
+                if (!saveHandled) {
+                    try {
+                        saveIndex(indexer);
+                    } catch (IOException e) {
+                        System.err.println("The index could not be saved to " + INDEX_PATH + ": " + e);
+                        e.printStackTrace();
+                    }
+                }
+            }));
+            // Visible in JConsole and other JMX clients
+            SearchMetrics.register(search.getMetrics());
             SpellChecker spellChecker = new SpellChecker(dictionaryPath); // Create instance of SpellChecker
             SearchUI searchUI = new SearchUI(search, spellChecker);
+            searchUI.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+            searchUI.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    if (saveBeforeExit(searchUI, indexer)) {
+                        saveHandled = true;
+                        System.exit(0);
+                    }
+                }
+            });
             searchUI.setVisible(true);
         });
     }
+
+    private static void loadIndex(Indexer indexer) {
+        if (new File(INDEX_PATH).isFile()) {
+            try {
+                indexer.load(INDEX_PATH);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Saves the index as the window closes. If that fails, the user is told why and asked whether to quit anyway.
+     * @return Whether to quit.
+     */
+    private static boolean saveBeforeExit(JFrame frame, Indexer indexer) {
+        try {
+            saveIndex(indexer);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            int choice = JOptionPane.showConfirmDialog(frame,
+                    "The index could not be saved to " + INDEX_PATH + ":\n" + e.getMessage()
+                            + "\n\nQuit anyway? Changes to the index since it was last saved will be lost.",
+                    "Saving the index failed", JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE);
+            return choice == JOptionPane.YES_OPTION;
+        }
+    }
+
+    private static void saveIndex(Indexer indexer) throws IOException {
+        if (indexer.hasUnsavedChanges()) {
+            indexer.save(INDEX_PATH);
+        }
+    }
 }
@@ -0,0 +1,40 @@
+package core;
+
+/**
+ * The AllDocsPostingsCursor class iterates every document ID below a bound, each with a frequency of 0.
+ * Deleted documents are included; wrap it in a {@link LivePostingsCursor} to skip them.
+ */
+class AllDocsPostingsCursor implements PostingsCursor {
+    private final int maxDoc;
+    private int docId = -1;
+
+    AllDocsPostingsCursor(int maxDoc) {
+        this.maxDoc = maxDoc;
+    }
+
+    @Override
+    public boolean next() {
+        return ++docId < maxDoc;
+    }
+
+    @Override
+    public boolean advance(int target) {
+        docId = Math.max(docId + 1, target);
+        return docId < maxDoc;
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int freq() {
+        return 0;
+    }
+
+    @Override
+    public int nextPosition() {
+        throw new IllegalStateException("Postings do not record positions");
+    }
+}
@@ -0,0 +1,127 @@
+package core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The BKTree class indexes words by Levenshtein distance for fast approximate lookup.
+ * Every child of a node is filed under its distance to that node, so by the triangle inequality a
+ * search within radius r only has to visit the children whose distance lies within r of the query's
+ * distance to the node.
+ */
+class BKTree {
+    private final LevenshteinDistance insertDistance = new LevenshteinDistance();
+    private Node root;
+    private int size;
+
+    /**
+     * Adds a word to the tree. Words already in the tree are ignored.
+     * @param word The word to add.
+     */
+    void add(String word) {
+        if (root == null) {
+            root = new Node(word, size++);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = insertDistance.compute(word, node.word, Integer.MAX_VALUE - 1);
+            if (distance == 0) {
+                return;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                node.addChild(distance, new Node(word, size++));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Finds the words closest to a term.
+     *
+     * @param term The term to look up.
+     * @param maxDistance The largest edit distance a result may have.
+     * @return Every word at the smallest distance from the term that does not exceed maxDistance,
+     *         in the order the words were added; empty if there is none.
+     */
+    List<String> closest(String term, int maxDistance) {
+        List<Node> best = new ArrayList<>();
+        if (root == null) {
+            return new ArrayList<>();
+        }
+        int bestDistance = maxDistance;
+        LevenshteinDistance levenshtein = new LevenshteinDistance();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            // Beyond this distance neither the node nor any of its children can be within bestDistance of the term
+            int limit = bestDistance + node.maxChildDistance;
+            int distance = levenshtein.compute(term, node.word, limit);
+            if (distance > limit) {
+                continue;
+            }
+            if (distance < bestDistance) {
+                best.clear();
+                bestDistance = distance;
+            }
+            if (distance == bestDistance) {
+                best.add(node);
+            }
+            // The search radius shrinks as closer words are found
+            for (int i = 0; i < node.childCount; i++) {
+                if (Math.abs(node.distances[i] - distance) <= bestDistance) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+        best.sort(Comparator.comparingInt(node -> node.order));
+        List<String> words = new ArrayList<>(best.size());
+        best.forEach(node -> words.add(node.word));
+        return words;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static class Node {
+        final String word;
+        final int order;
+        int[] distances = new int[0];
+        Node[] children = new Node[0];
+        int childCount;
+        int maxChildDistance;
+
+        Node(String word, int order) {
+            this.word = word;
+            this.order = order;
+        }
+
+        Node child(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (distances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node child) {
+            if (childCount == children.length) {
+                int capacity = Math.max(2, childCount * 2);
+                distances = Arrays.copyOf(distances, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            distances[childCount] = distance;
+            children[childCount++] = child;
+            maxChildDistance = Math.max(maxChildDistance, distance);
+        }
+    }
+}
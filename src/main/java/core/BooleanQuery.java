@@ -0,0 +1,99 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The BooleanQuery class combines queries with AND, OR and NOT.
+ *
+ * A document matches if it matches every required clause, or at least one optional clause when there is
+ * no required clause, or always when there are neither; and if it matches no excluded clause. Its frequency
+ * is the sum of its frequencies in the matching required or optional clauses.
+ *
+ * Matches are streamed from the posting lists in document ID order without building intermediate result sets:
+ * required clauses are intersected led by the one with the fewest matches, optional clauses are merged, and
+ * excluded clauses are only advanced as far as the documents that would otherwise match.
+ */
+class BooleanQuery implements Query {
+    private final List<Query> required;
+    private final List<Query> optional;
+    private final List<Query> excluded;
+
+    /**
+     * Constructor for BooleanQuery.
+     * @param required The clauses every match must satisfy.
+     * @param optional The clauses of which a match must satisfy at least one; ignored if there are required clauses.
+     * @param excluded The clauses no match may satisfy.
+     */
+    BooleanQuery(List<Query> required, List<Query> optional, List<Query> excluded) {
+        this.required = required;
+        this.optional = optional;
+        this.excluded = excluded;
+    }
+
+    @Override
+    public PostingsCursor postings(IndexSnapshot snapshot) {
+        PostingsCursor matches;
+        if (!required.isEmpty()) {
+            long[] costs = new long[required.size()];
+            Integer[] order = new Integer[required.size()];
+            for (int i = 0; i < order.length; i++) {
+                costs[i] = required.get(i).cost(snapshot);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(costs[a], costs[b]));
+            PostingsCursor[] cursors = new PostingsCursor[order.length];
+            for (int i = 0; i < order.length; i++) {
+                cursors[i] = required.get(order[i]).postings(snapshot);
+                if (cursors[i] == null) {
+                    return null;
+                }
+            }
+            matches = cursors.length == 1 ? cursors[0] : new ConjunctionPostingsCursor(cursors);
+        } else if (!optional.isEmpty()) {
+            matches = union(optional, snapshot);
+            if (matches == null) {
+                return null;
+            }
+        } else {
+            matches = snapshot.allDocs();
+        }
+        PostingsCursor exclusions = union(excluded, snapshot);
+        return exclusions == null ? matches : new ExcludingPostingsCursor(matches, exclusions);
+    }
+
+    @Override
+    public long cost(IndexSnapshot snapshot) {
+        if (!required.isEmpty()) {
+            return required.stream().mapToLong(clause -> clause.cost(snapshot)).min().getAsLong();
+        }
+        if (!optional.isEmpty()) {
+            return optional.stream().mapToLong(clause -> clause.cost(snapshot)).sum();
+        }
+        return snapshot.liveCount();
+    }
+
+    @Override
+    public boolean needsPositions() {
+        return Stream.of(required, optional, excluded).flatMap(List::stream).anyMatch(Query::needsPositions);
+    }
+
+    /**
+     * @return A cursor over the documents matching any of the clauses, or null if none can match.
+     */
+    private static PostingsCursor union(List<Query> clauses, IndexSnapshot snapshot) {
+        List<PostingsCursor> cursors = new ArrayList<>();
+        for (Query clause : clauses) {
+            PostingsCursor cursor = clause.postings(snapshot);
+            if (cursor != null) {
+                cursors.add(cursor);
+            }
+        }
+        if (cursors.isEmpty()) {
+            return null;
+        }
+        return cursors.size() == 1 ? cursors.get(0) : new MergedPostingsCursor(cursors.toArray(new PostingsCursor[0]));
+    }
+}
@@ -0,0 +1,137 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * The CompletionService class suggests indexed words that start with what the user has typed so far, the words
+ * found in most files first.
+ *
+ * Suggestions come from a {@link CompletionTrie} built from the term dictionary of the index, which answers a
+ * lookup in microseconds. Building it reads the whole vocabulary, so after the index changes the trie is rebuilt by
+ * the next lookup only once it is at least a second old and twenty times as old as its build took; until then, as
+ * while another lookup rebuilds it, lookups are answered from the previous trie. A directory being indexed or a file
+ * saved every few moments thus costs a bounded share of the time in builds, and new words are suggested shortly
+ * after they are indexed. Only the very first lookup waits for a build, so lookups should be made off the event
+ * dispatch thread.
+ */
+public class CompletionService {
+    private static final long MIN_REBUILD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // A trie is kept at least this many times as long as it took to build
+    private static final int REBUILD_INTERVAL_PER_BUILD_TIME = 20;
+
+    private final List<Indexer> shards;
+    private final int maxCompletions;
+    private final long minRebuildIntervalNanos;
+    private final LongSupplier nanoTime;
+    private volatile Built current;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * Constructor for CompletionService.
+     * @param shards The shards of the index whose words are suggested.
+     * @param maxCompletions The number of suggestions a lookup returns at most.
+     */
+    public CompletionService(List<Indexer> shards, int maxCompletions) {
+        this(shards, maxCompletions, MIN_REBUILD_INTERVAL_NANOS, System::nanoTime);
+    }
+
+    /**
+     * Constructor for CompletionService with its own rebuild interval and clock.
+     * @param shards The shards of the index whose words are suggested.
+     * @param maxCompletions The number of suggestions a lookup returns at most.
+     * @param minRebuildIntervalNanos How long a trie is used at least after it was built, if the index changed.
+     * @param nanoTime The clock measuring the age of a trie, in nanoseconds.
+     */
+    CompletionService(List<Indexer> shards, int maxCompletions, long minRebuildIntervalNanos, LongSupplier nanoTime) {
+        this.shards = List.copyOf(shards);
+        this.maxCompletions = maxCompletions;
+        this.minRebuildIntervalNanos = minRebuildIntervalNanos;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Suggests completions of a word.
+     *
+     * @param prefix The beginning of a word; letter case is ignored.
+     * @return Up to the maximum number of indexed words starting with the prefix, most frequent first;
+     *         empty if the prefix is empty.
+     */
+    public List<String> complete(String prefix) {
+        if (prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return trie().complete(Tokenizer.lowercase(prefix));
+    }
+
+    private CompletionTrie trie() {
+        long generation = Search.generation(shards);
+        Built built = current;
+        if (built != null && (built.generation == generation || !dueForRebuild(built))) {
+            return built.trie;
+        }
+        boolean claimed = rebuilding.compareAndSet(false, true);
+        if (!claimed && built != null) {
+            // Another lookup is rebuilding the trie
+            return built.trie;
+        }
+        try {
+            // Changes made during the build leave the trie a generation behind, so it is rebuilt again
+            long start = nanoTime.getAsLong();
+            CompletionTrie trie = build();
+            long end = nanoTime.getAsLong();
+            current = new Built(generation, trie, end, end - start);
+            return trie;
+        } finally {
+            if (claimed) {
+                rebuilding.set(false);
+            }
+        }
+    }
+
+    /**
+     * @return Whether a trie of an older generation has been used long enough to be rebuilt.
+     */
+    private boolean dueForRebuild(Built built) {
+        long interval = Math.max(minRebuildIntervalNanos, REBUILD_INTERVAL_PER_BUILD_TIME * built.buildNanos);
+        return nanoTime.getAsLong() - built.builtAt >= interval;
+    }
+
+    private CompletionTrie build() {
+        Map<String, Integer> docFreqs = new HashMap<>();
+        for (Indexer shard : shards) {
+            shard.docFreqs().forEach((term, docFreq) -> docFreqs.merge(term, docFreq, Integer::sum));
+        }
+        List<String> sorted = new ArrayList<>(docFreqs.keySet());
+        Collections.sort(sorted);
+        String[] terms = sorted.toArray(new String[0]);
+        int[] frequencies = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            frequencies[i] = docFreqs.get(terms[i]);
+        }
+        return new CompletionTrie(terms, frequencies, maxCompletions);
+    }
+
+    /**
+     * A trie, the index generation it was built from, and when and how quickly it was built.
+     */
+    private static class Built {
+        final long generation;
+        final CompletionTrie trie;
+        final long builtAt;
+        final long buildNanos;
+
+        Built(long generation, CompletionTrie trie, long builtAt, long buildNanos) {
+            this.generation = generation;
+            this.trie = trie;
+            this.builtAt = builtAt;
+            this.buildNanos = buildNanos;
+        }
+    }
+}
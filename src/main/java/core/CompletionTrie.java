@@ -0,0 +1,204 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The CompletionTrie class finds the most frequent terms starting with a prefix. It is built once from a term
+ * dictionary and never changes.
+ *
+ * The terms are kept in a sorted array, so the terms starting with any prefix form a contiguous range of it.
+ * A trie over the first characters of the terms caches, at every node, the best completions of the prefix the
+ * node spells, so a lookup walks one node per character and copies a precomputed list. Only prefixes shared by
+ * more terms than there are completions to return get a node; below that, the few matching terms are found
+ * by binary search and ranked on the spot, which keeps the trie to a small fraction of the vocabulary.
+ */
+class CompletionTrie {
+    private final String[] terms;
+    private final int[] docFreqs;
+    private final int maxCompletions;
+    private final Node root;
+
+    /**
+     * Constructor for CompletionTrie.
+     *
+     * @param terms The terms in ascending order, without duplicates.
+     * @param docFreqs The document frequency of each term, by which completions are ranked.
+     * @param maxCompletions The number of completions a lookup returns at most.
+     */
+    CompletionTrie(String[] terms, int[] docFreqs, int maxCompletions) {
+        this.terms = terms;
+        this.docFreqs = docFreqs;
+        this.maxCompletions = maxCompletions;
+        this.root = build(0, terms.length, 0);
+    }
+
+    /**
+     * Finds the completions of a prefix.
+     *
+     * @param prefix The lowercased prefix.
+     * @return Up to the maximum number of terms starting with the prefix, the prefix itself included, most
+     *         frequent first and alphabetically among equally frequent ones.
+     */
+    List<String> complete(String prefix) {
+        Node node = root;
+        int depth = 0;
+        while (node != null && depth < prefix.length()) {
+            Node child = node.child(prefix.charAt(depth));
+            if (child == null) {
+                break;
+            }
+            node = child;
+            depth++;
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        if (depth == prefix.length()) {
+            return toTerms(node.top);
+        }
+        // The prefix is rarer than a node's worth of terms; its range within the deepest node is short
+        int from = lowerBound(node.from, node.to, prefix);
+        int to = from;
+        while (to < node.to && terms[to].startsWith(prefix)) {
+            to++;
+        }
+        return toTerms(best(from, to));
+    }
+
+    /**
+     * @return The number of trie nodes, for estimating the memory used.
+     */
+    int nodeCount() {
+        return root == null ? 0 : root.count();
+    }
+
+    /**
+     * Builds the node of the terms in [from, to), which share their first depth characters.
+     */
+    private Node build(int from, int to, int depth) {
+        if (to - from == 0) {
+            return null;
+        }
+        Node node = new Node(from, to);
+        if (to - from <= maxCompletions) {
+            // Short enough to rank at lookup time
+            node.top = best(from, to);
+            return node;
+        }
+        // A term equal to the shared prefix sorts before its extensions
+        int start = terms[from].length() == depth ? from + 1 : from;
+        List<Character> labels = new ArrayList<>();
+        List<Node> children = new ArrayList<>();
+        int[] candidates = start > from ? new int[] {from} : new int[0];
+        for (int i = start; i < to; ) {
+            char label = terms[i].charAt(depth);
+            int end = i + 1;
+            while (end < to && terms[end].charAt(depth) == label) {
+                end++;
+            }
+            Node child = build(i, end, depth + 1);
+            labels.add(label);
+            children.add(child);
+            int[] merged = Arrays.copyOf(candidates, candidates.length + child.top.length);
+            System.arraycopy(child.top, 0, merged, candidates.length, child.top.length);
+            candidates = merged;
+            i = end;
+        }
+        node.labels = new char[labels.size()];
+        for (int i = 0; i < node.labels.length; i++) {
+            node.labels[i] = labels.get(i);
+        }
+        node.children = children.toArray(new Node[0]);
+        // The best completions of a prefix are among the best completions of its extensions
+        node.top = best(candidates);
+        return node;
+    }
+
+    /**
+     * Ranks the terms of a range.
+     */
+    private int[] best(int from, int to) {
+        int[] ordinals = new int[to - from];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = from + i;
+        }
+        return best(ordinals);
+    }
+
+    /**
+     * Ranks terms by descending document frequency, then alphabetically, and keeps the best.
+     */
+    private int[] best(int[] ordinals) {
+        Integer[] boxed = new Integer[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            boxed[i] = ordinals[i];
+        }
+        // Ordinals follow alphabetical order
+        Arrays.sort(boxed, Comparator.<Integer>comparingInt(ordinal -> -docFreqs[ordinal]).thenComparingInt(ordinal -> ordinal));
+        int[] top = new int[Math.min(maxCompletions, boxed.length)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = boxed[i];
+        }
+        return top;
+    }
+
+    private List<String> toTerms(int[] ordinals) {
+        List<String> completions = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            completions.add(terms[ordinal]);
+        }
+        return completions;
+    }
+
+    private int lowerBound(int from, int to, String key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static class Node {
+        // The range of the sorted terms starting with the prefix of this node
+        final int from;
+        final int to;
+        // The best completions of the prefix, as term ordinals
+        int[] top;
+        // The next characters in ascending order, with the node of each; null below the trie
+        char[] labels;
+        Node[] children;
+
+        Node(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        Node child(char label) {
+            if (labels == null) {
+                return null;
+            }
+            int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+
+        int count() {
+            int count = 1;
+            if (children != null) {
+                for (Node child : children) {
+                    count += child.count();
+                }
+            }
+            return count;
+        }
+    }
+}
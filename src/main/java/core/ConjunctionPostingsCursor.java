@@ -0,0 +1,87 @@
+package core;
+
+/**
+ * The ConjunctionPostingsCursor class iterates the documents that appear in every one of several posting cursors.
+ * The first cursor leads: the others are only advanced to documents it holds, and it is only advanced past
+ * documents they lack, so the cursors should be ordered by ascending number of postings.
+ *
+ * The frequency of a document is the sum of its frequencies in all cursors. The cursors stay on the current
+ * document until the next call, so their positions can be read directly.
+ */
+class ConjunctionPostingsCursor implements PostingsCursor {
+    private final PostingsCursor[] cursors;
+    private int docId = -1;
+    private int freq;
+    private boolean exhausted;
+
+    ConjunctionPostingsCursor(PostingsCursor... cursors) {
+        this.cursors = cursors;
+    }
+
+    @Override
+    public boolean next() {
+        if (exhausted || !cursors[0].next()) {
+            return exhaust();
+        }
+        return align();
+    }
+
+    @Override
+    public boolean advance(int target) {
+        if (exhausted || !cursors[0].advance(target)) {
+            return exhaust();
+        }
+        return align();
+    }
+
+    /**
+     * Moves the cursors forward until they are all on the same document, starting from the lead's document.
+     */
+    private boolean align() {
+        PostingsCursor lead = cursors[0];
+        int target = lead.docId();
+        int i = 1;
+        while (i < cursors.length) {
+            PostingsCursor other = cursors[i];
+            if (other.docId() < target && !other.advance(target)) {
+                return exhaust();
+            }
+            if (other.docId() > target) {
+                // The lead catches up with the first document the other cursor can be on, and every cursor is checked again
+                if (!lead.advance(other.docId())) {
+                    return exhaust();
+                }
+                target = lead.docId();
+                i = 1;
+            } else {
+                i++;
+            }
+        }
+        docId = target;
+        freq = 0;
+        for (PostingsCursor cursor : cursors) {
+            freq += cursor.freq();
+        }
+        return true;
+    }
+
+    private boolean exhaust() {
+        exhausted = true;
+        return false;
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int freq() {
+        return freq;
+    }
+
+    @Override
+    public int nextPosition() {
+        throw new IllegalStateException("Read positions from the individual cursors of a conjunction");
+    }
+}
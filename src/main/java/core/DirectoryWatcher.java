@@ -0,0 +1,173 @@
+package core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * The DirectoryWatcher class keeps an {@link Indexer} current with changes on disk.
+ * It watches the indexed directories (recursively) and individually indexed files through a {@link WatchService},
+ * collects create/modify/delete events on a background thread, and applies them to the index in batches once
+ * no new event has arrived for the debounce interval, or at the latest after ten debounce intervals.
+ *
+ * Files are read and tokenized on the watcher thread; the index is only locked while a changed file is applied.
+ */
+class DirectoryWatcher implements Closeable {
+    private final Indexer indexer;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    // Watched directories, mapped to true if every file in them is indexed and false if only some are
+    private final Map<Path, Boolean> directories = new ConcurrentHashMap<>();
+    private final Set<Path> files = ConcurrentHashMap.newKeySet();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Constructor for DirectoryWatcher. Starts the background thread.
+     * @param indexer The indexer to apply changes to.
+     * @param debounceMillis How long to wait for further events before applying a batch.
+     * @throws IOException If the watch service cannot be created.
+     */
+    DirectoryWatcher(Indexer indexer, long debounceMillis) throws IOException {
+        this.indexer = indexer;
+        this.debounceMillis = debounceMillis;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(this::run, "index-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts watching an indexed path. A directory is watched with all its subdirectories;
+     * for a file, only events concerning that file are applied.
+     *
+     * @param path The directory or file that was indexed.
+     * @throws IOException If a directory cannot be registered.
+     */
+    void register(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> paths = Files.walk(path)) {
+                for (Path directory : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                    watch(directory, true);
+                }
+            }
+        } else if (path.getParent() != null) {
+            files.add(path);
+            if (!directories.containsKey(path.getParent())) {
+                watch(path.getParent(), false);
+            }
+        }
+    }
+
+    /**
+     * Stops applying events for a file that was registered on its own.
+     * @param file The file path.
+     */
+    void unregisterFile(Path file) {
+        files.remove(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void watch(Path directory, boolean wholeDirectory) throws IOException {
+        if (!wholeDirectory && directories.containsKey(directory)) {
+            return;
+        }
+        WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        keys.put(key, directory);
+        directories.merge(directory, wholeDirectory, Boolean::logicalOr);
+    }
+
+    private void run() {
+        Set<Path> pending = new LinkedHashSet<>();
+        long firstPendingAt = 0;
+        try {
+            while (!closed) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                    firstPendingAt = System.currentTimeMillis();
+                } else {
+                    long wait = Math.min(debounceMillis, firstPendingAt + 10 * debounceMillis - System.currentTimeMillis());
+                    key = wait > 0 ? watchService.poll(wait, TimeUnit.MILLISECONDS) : null;
+                }
+                if (key == null) {
+                    apply(pending);
+                    pending.clear();
+                } else {
+                    collect(key, pending);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> pending) {
+        Path directory = keys.get(key);
+        boolean wholeDirectory = directory != null && directories.getOrDefault(directory, false);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null) {
+                break;
+            }
+            if (event.kind() == OVERFLOW) {
+                // Events were lost, so rescan everything watched in this directory
+                if (wholeDirectory) {
+                    pending.add(directory);
+                } else {
+                    files.stream().filter(file -> directory.equals(file.getParent())).forEach(pending::add);
+                }
+                continue;
+            }
+            Path child = directory.resolve((Path) event.context());
+            if (wholeDirectory) {
+                pending.add(child);
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+                    try {
+                        register(child);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            } else if (files.contains(child)) {
+                pending.add(child);
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+            if (directory != null) {
+                directories.remove(directory);
+            }
+        }
+    }
+
+    private void apply(Set<Path> pending) {
+        for (Path path : pending) {
+            try {
+                if (Files.isDirectory(path)) {
+                    indexer.indexDirectory(path.toString());
+                } else if (Files.isRegularFile(path)) {
+                    indexer.indexFile(path.toString());
+                } else {
+                    indexer.removeTree(path.toString());
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
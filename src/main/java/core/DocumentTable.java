@@ -0,0 +1,181 @@
+package core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The DocumentTable class assigns each indexed file a dense integer document ID,
+ * so that posting lists can refer to documents by ID instead of repeating the file path.
+ * It also records the size, modification time and content hash of each file, which lets
+ * the indexer skip files that have not changed since they were indexed, and the number of words
+ * in each file, which relevance ranking uses to normalize for file length.
+ *
+ * A file that changes is given a new ID and its old ID is marked deleted, so IDs only ever grow
+ * and posting lists can stay append-only. When all postings are rewritten anyway, on a full merge or a save,
+ * {@link #compact(int[])} renumbers the live documents so that deleted IDs do not accumulate.
+ *
+ * The table itself is not thread-safe, but the arrays returned by {@link #getPaths()} and {@link #getLengths()}
+ * may be shared with readers: their entries are never changed once assigned.
+ */
+class DocumentTable {
+    private String[] paths = new String[16];
+    private int[] lengths = new int[16];
+    private int size;
+    private long liveLength;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] sizes = new long[16];
+    private long[] modifiedTimes = new long[16];
+    private long[] hashes = new long[16];
+
+    /**
+     * Appends a document with the next free ID.
+     * The caller must delete any live document with the same path first.
+     *
+     * @param path The file path of the document, or null to leave the ID unused.
+     * @param fileSize The size of the file in bytes.
+     * @param modifiedTime The last modification time of the file in milliseconds.
+     * @param hash The content hash of the file.
+     * @param length The number of words in the file.
+     * @return The document ID.
+     */
+    int add(String path, long fileSize, long modifiedTime, long hash, int length) {
+        int docId = size++;
+        if (docId == sizes.length) {
+            paths = Arrays.copyOf(paths, docId * 2);
+            lengths = Arrays.copyOf(lengths, docId * 2);
+            sizes = Arrays.copyOf(sizes, docId * 2);
+            modifiedTimes = Arrays.copyOf(modifiedTimes, docId * 2);
+            hashes = Arrays.copyOf(hashes, docId * 2);
+        }
+        paths[docId] = path;
+        lengths[docId] = length;
+        sizes[docId] = fileSize;
+        modifiedTimes[docId] = modifiedTime;
+        hashes[docId] = hash;
+        if (path == null) {
+            deleted.set(docId);
+        } else {
+            ids.put(path, docId);
+            liveLength += length;
+        }
+        return docId;
+    }
+
+    /**
+     * Marks a document deleted. Its ID is never reused.
+     * @param docId The ID of the document.
+     */
+    void delete(int docId) {
+        if (!deleted.get(docId)) {
+            deleted.set(docId);
+            ids.remove(paths[docId]);
+            liveLength -= lengths[docId];
+        }
+    }
+
+    /**
+     * Copies the live documents into a new table, in the same order but without the IDs of deleted documents.
+     *
+     * @param newIds Filled with the new ID of each document by old ID, or -1 for a deleted document;
+     *               at least {@link #size()} long.
+     * @return The compacted table.
+     */
+    DocumentTable compact(int[] newIds) {
+        DocumentTable compacted = new DocumentTable();
+        for (int docId = 0; docId < size; docId++) {
+            newIds[docId] = deleted.get(docId) ? -1
+                    : compacted.add(paths[docId], sizes[docId], modifiedTimes[docId], hashes[docId], lengths[docId]);
+        }
+        return compacted;
+    }
+
+    /**
+     * @param path The file path of the document.
+     * @return The ID of the live document with this path, or -1 if there is none.
+     */
+    int getId(String path) {
+        return ids.getOrDefault(path, -1);
+    }
+
+    boolean isLive(int docId) {
+        return !deleted.get(docId);
+    }
+
+    /**
+     * @return A view of the deleted document IDs, which must not be modified.
+     */
+    BitSet getDeleted() {
+        return deleted;
+    }
+
+    String getPath(int docId) {
+        return paths[docId];
+    }
+
+    /**
+     * @return The paths indexed by document ID, valid below {@link #size()}; null for unused IDs.
+     *         The array is replaced rather than modified when the table grows, and must not be modified.
+     */
+    String[] getPaths() {
+        return paths;
+    }
+
+    /**
+     * @return The word counts indexed by document ID, valid below {@link #size()}.
+     *         The array is replaced rather than modified when the table grows, and must not be modified.
+     */
+    int[] getLengths() {
+        return lengths;
+    }
+
+    int getLength(int docId) {
+        return lengths[docId];
+    }
+
+    /**
+     * @return The total number of words in all live documents.
+     */
+    long liveLength() {
+        return liveLength;
+    }
+
+    long getSize(int docId) {
+        return sizes[docId];
+    }
+
+    long getModifiedTime(int docId) {
+        return modifiedTimes[docId];
+    }
+
+    void setModifiedTime(int docId, long modifiedTime) {
+        modifiedTimes[docId] = modifiedTime;
+    }
+
+    long getHash(int docId) {
+        return hashes[docId];
+    }
+
+    /**
+     * @return The paths of all live documents.
+     */
+    Iterable<String> livePaths() {
+        return ids.keySet();
+    }
+
+    /**
+     * @return The number of IDs assigned so far, including deleted ones.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of live documents.
+     */
+    int liveCount() {
+        return ids.size();
+    }
+}
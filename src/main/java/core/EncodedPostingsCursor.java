@@ -0,0 +1,128 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The EncodedPostingsCursor class decodes a compressed posting list one (docId, frequency) pair at a time.
+ * The buffer may wrap a heap array or a slice of a memory-mapped segment file.
+ * Positions, if recorded, are only decoded when asked for; otherwise they are skipped as a block.
+ * With skip entries, {@link #advance(int)} jumps over whole blocks of postings that lie before its target.
+ */
+class EncodedPostingsCursor implements PostingsCursor {
+    private final ByteBuffer buffer;
+    private final boolean positions;
+    private final int start;
+    // Pairs of (document ID, byte offset from start after its posting), in ascending order
+    private final IntBuffer skips;
+    private int nextSkip;
+    private int decoded;
+    private int docId = -1;
+    private int freq;
+    private int positionsEnd;
+    private int position;
+
+    EncodedPostingsCursor(ByteBuffer buffer) {
+        this(buffer, false);
+    }
+
+    /**
+     * @param buffer The encoded postings, from the buffer's position to its limit.
+     * @param positions Whether each posting is followed by the positions of the term in the document.
+     */
+    EncodedPostingsCursor(ByteBuffer buffer, boolean positions) {
+        this(buffer, positions, IntBuffer.allocate(0));
+    }
+
+    /**
+     * @param buffer The encoded postings, from the buffer's position to its limit.
+     * @param positions Whether each posting is followed by the positions of the term in the document.
+     * @param skips Pairs of a document ID in the postings and the byte offset after its posting, relative to the
+     *              buffer's position, in ascending order.
+     */
+    EncodedPostingsCursor(ByteBuffer buffer, boolean positions, IntBuffer skips) {
+        this.buffer = buffer;
+        this.positions = positions;
+        this.start = buffer.position();
+        this.skips = skips;
+        this.positionsEnd = buffer.position();
+    }
+
+    @Override
+    public boolean next() {
+        if (positions) {
+            // Skip any positions of the previous document that were not read
+            buffer.position(positionsEnd);
+        }
+        if (!buffer.hasRemaining()) {
+            return false;
+        }
+        docId += readVInt() + 1;
+        freq = readVInt();
+        decoded++;
+        if (positions) {
+            int length = readVInt();
+            positionsEnd = buffer.position() + length;
+            position = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean advance(int target) {
+        // Jump past the last skip entry before the target, unless the cursor is already beyond it
+        int entries = skips.limit() / 2;
+        int skipTo = -1;
+        while (nextSkip < entries && skips.get(2 * nextSkip) < target) {
+            skipTo = nextSkip++;
+        }
+        if (skipTo >= 0 && skips.get(2 * skipTo) > docId) {
+            docId = skips.get(2 * skipTo);
+            positionsEnd = start + skips.get(2 * skipTo + 1);
+            buffer.position(positionsEnd);
+        }
+        while (next()) {
+            if (docId >= target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of postings decoded so far, which shows how many skipping saved.
+     */
+    int decodedCount() {
+        return decoded;
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int freq() {
+        return freq;
+    }
+
+    @Override
+    public int nextPosition() {
+        if (!positions) {
+            throw new IllegalStateException("Postings do not record positions");
+        }
+        // The first position is stored as is, later ones as the gap to the previous one
+        position += readVInt();
+        return position;
+    }
+
+    private int readVInt() {
+        byte b = buffer.get();
+        int value = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+}
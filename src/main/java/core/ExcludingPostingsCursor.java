@@ -0,0 +1,64 @@
+package core;
+
+/**
+ * The ExcludingPostingsCursor class skips the documents of one posting cursor that appear in another.
+ */
+class ExcludingPostingsCursor implements PostingsCursor {
+    private final PostingsCursor in;
+    private final PostingsCursor excluded;
+    private boolean excludedExhausted;
+
+    /**
+     * @param in The postings to filter.
+     * @param excluded The documents to skip; their frequencies and positions are ignored.
+     */
+    ExcludingPostingsCursor(PostingsCursor in, PostingsCursor excluded) {
+        this.in = in;
+        this.excluded = excluded;
+    }
+
+    @Override
+    public boolean next() {
+        while (in.next()) {
+            if (!isExcluded(in.docId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean advance(int target) {
+        if (!in.advance(target)) {
+            return false;
+        }
+        do {
+            if (!isExcluded(in.docId())) {
+                return true;
+            }
+        } while (in.next());
+        return false;
+    }
+
+    private boolean isExcluded(int docId) {
+        if (!excludedExhausted && excluded.docId() < docId) {
+            excludedExhausted = !excluded.advance(docId);
+        }
+        return !excludedExhausted && excluded.docId() == docId;
+    }
+
+    @Override
+    public int docId() {
+        return in.docId();
+    }
+
+    @Override
+    public int freq() {
+        return in.freq();
+    }
+
+    @Override
+    public int nextPosition() {
+        return in.nextPosition();
+    }
+}
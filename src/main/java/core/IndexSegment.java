@@ -0,0 +1,608 @@
+package core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The IndexSegment class reads and writes an immutable binary index file.
+ * A segment is opened with {@link FileChannel#map}, so its term dictionary and posting lists stay
+ * off the Java heap and are paged in by the operating system on demand.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   magic, version, flags                                     header; flag 1 means postings have positions
+ *   rootCount x (pathLength, UTF-8 path bytes)                the indexed directories and files
+ *   docCount x (pathLength, UTF-8 path bytes,                 documents, pathLength -1 and nothing else
+ *               size, modifiedTime, hash, wordCount)          for a deleted document
+ *   encoded postings of every term, back to back, each        postings
+ *   followed by its skip entries: (docId, offset after the
+ *   posting) for every 128th posting
+ *   termCount x (termStart, termLength, postingsStart,        dictionary, sorted by unsigned term bytes
+ *                postingsLength, docFreq)
+ *   UTF-8 bytes of every term, back to back                   terms
+ *   documentsOffset, postingsOffset, dictionaryOffset,        footer
+ *   termsOffset, docCount, termCount, magic
+ * </pre>
+ *
+ * A file is limited to 2 GB, the most one mapping can hold, so a large segment is written as several files, or
+ * parts, that split the terms between them: once the postings of a part pass {@link #MAX_PART_BYTES}, the
+ * following terms go to the next part. Only the first part holds the roots and documents. Each part is opened as
+ * a segment of its own, and a term's postings are found in exactly one of them.
+ */
+class IndexSegment {
+    private static final int MAGIC = 0x53454731; // "SEG1"
+    private static final int VERSION = 6;
+    private static final int FLAG_POSITIONS = 1;
+    private static final int DICTIONARY_ENTRY_SIZE = 24;
+    private static final int FOOTER_SIZE = 4 * 8 + 3 * 4;
+    // Leaves room below the 2 GB limit for the dictionary and terms of a part, and for a term's postings
+    static final long MAX_PART_BYTES = 1L << 30;
+
+    private final MappedByteBuffer buffer;
+    private final boolean positions;
+    private final int documentsOffset;
+    private final int postingsOffset;
+    private final int dictionaryOffset;
+    private final int termsOffset;
+    private final int docCount;
+    private final int termCount;
+    // Built by the first wildcard search that needs it
+    private volatile TrigramIndex trigrams;
+    // Summed by the first caller that needs it, -1 until then
+    private volatile long postingCount = -1;
+
+    private IndexSegment(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int footer = buffer.capacity() - FOOTER_SIZE;
+        if (buffer.capacity() < 16 + FOOTER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(buffer.capacity() - 4) != MAGIC) {
+            throw new IOException("Not an index segment file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported index segment version: " + buffer.getInt(4));
+        }
+        positions = (buffer.getInt(8) & FLAG_POSITIONS) != 0;
+        documentsOffset = (int) buffer.getLong(footer);
+        postingsOffset = (int) buffer.getLong(footer + 8);
+        dictionaryOffset = (int) buffer.getLong(footer + 16);
+        termsOffset = (int) buffer.getLong(footer + 24);
+        docCount = buffer.getInt(footer + 32);
+        termCount = buffer.getInt(footer + 36);
+    }
+
+    /**
+     * Memory-maps an existing segment file.
+     *
+     * @param path The path of the segment file.
+     * @return The opened segment.
+     * @throws IOException If the file cannot be read or is not a valid segment.
+     */
+    static IndexSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index segment larger than 2 GB: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return new IndexSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a segment file.
+     *
+     * @param path The path of the file to create or overwrite.
+     * @param documents The document table; deleted documents are written as empty slots. May be null for a
+     *                  segment that only holds postings, whose documents are kept elsewhere.
+     * @param roots The paths the documents were indexed from, empty for a segment that only holds postings.
+     * @param terms The terms to write, in any order.
+     * @param postings Supplies the postings of each term.
+     * @param positions Whether to write positions; the postings must then provide them.
+     * @throws IOException If an I/O error occurs or the segment would exceed 2 GB.
+     */
+    static void write(Path path, DocumentTable documents, Collection<String> roots, Collection<String> terms,
+                      Function<String, PostingsCursor> postings, boolean positions) throws IOException {
+        write(part -> path, documents, roots, terms, postings, positions, Long.MAX_VALUE);
+    }
+
+    /**
+     * Writes a segment in as many parts as its size requires.
+     *
+     * @param files Gives the path of each part, to be created or overwritten.
+     * @param documents The document table, written to the first part; see {@link #write(Path, DocumentTable,
+     *                  Collection, Collection, Function, boolean)}.
+     * @param roots The paths the documents were indexed from, written to the first part.
+     * @param terms The terms to write, in any order.
+     * @param postings Supplies the postings of each term.
+     * @param positions Whether to write positions; the postings must then provide them.
+     * @param maxPartBytes The size of postings after which a part is closed and the next one started.
+     * @return The paths of the parts written, at least one. On failure, none of them is left behind.
+     * @throws IOException If an I/O error occurs or a part would exceed 2 GB.
+     */
+    static List<Path> write(PartFiles files, DocumentTable documents, Collection<String> roots,
+                            Collection<String> terms, Function<String, PostingsCursor> postings, boolean positions,
+                            long maxPartBytes) throws IOException {
+        byte[][] termBytes = new byte[terms.size()][];
+        int t = 0;
+        for (String term : terms) {
+            termBytes[t++] = term.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(termBytes, Arrays::compareUnsigned);
+
+        return writeSorted(files, documents, roots, new SortedTerms() {
+            private int next;
+
+            @Override
+            public byte[] next() {
+                return next < termBytes.length ? termBytes[next++] : null;
+            }
+
+            @Override
+            public PostingsCursor postings() {
+                return postings.apply(new String(termBytes[next - 1], StandardCharsets.UTF_8));
+            }
+        }, positions, maxPartBytes);
+    }
+
+    /**
+     * Merges segments into a new segment by a k-way merge of their term dictionaries. The postings of a term
+     * are streamed from the sources to the file, so memory use does not depend on the size of the segments.
+     *
+     * @param files Gives the path of each part of the merged segment, to be created or overwritten.
+     * @param documents The document table to write, or null to write postings only.
+     * @param sources The segments to merge, which must not share documents.
+     * @param deleted Documents whose postings are dropped.
+     * @param newIds The new ID of each remaining document by old ID, see {@link DocumentTable#compact(int[])},
+     *               or null to keep the IDs.
+     * @param positions Whether to write positions; every source must then have them.
+     * @param maxPartBytes The size of postings after which a part is closed and the next one started.
+     * @return The paths of the parts written, at least one. On failure, none of them is left behind.
+     * @throws IOException If an I/O error occurs or a part would exceed 2 GB.
+     */
+    static List<Path> merge(PartFiles files, DocumentTable documents, List<IndexSegment> sources, BitSet deleted,
+                            int[] newIds, boolean positions, long maxPartBytes) throws IOException {
+        int[] ordinals = new int[sources.size()];
+        byte[][] heads = new byte[sources.size()][];
+        // Sources ordered by their current term
+        PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) -> Arrays.compareUnsigned(heads[a], heads[b]));
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).termCount > 0) {
+                heads[i] = sources.get(i).termBytes(0);
+                queue.add(i);
+            }
+        }
+
+        return writeSorted(files, documents, List.of(), new SortedTerms() {
+            private final List<PostingsCursor> cursors = new ArrayList<>();
+
+            @Override
+            public byte[] next() {
+                // Move the sources of the previous term on to their next terms
+                cursors.clear();
+                if (queue.isEmpty()) {
+                    return null;
+                }
+                byte[] term = heads[queue.peek()];
+                while (!queue.isEmpty() && Arrays.equals(heads[queue.peek()], term)) {
+                    int source = queue.poll();
+                    IndexSegment segment = sources.get(source);
+                    cursors.add(segment.postings(ordinals[source]));
+                    if (++ordinals[source] < segment.termCount) {
+                        heads[source] = segment.termBytes(ordinals[source]);
+                        queue.add(source);
+                    }
+                }
+                return term;
+            }
+
+            @Override
+            public PostingsCursor postings() {
+                PostingsCursor cursor = cursors.size() == 1
+                        ? cursors.get(0) : new MergedPostingsCursor(cursors.toArray(new PostingsCursor[0]));
+                PostingsCursor live = deleted.isEmpty() ? cursor : new LivePostingsCursor(cursor, deleted);
+                return newIds == null ? live : new RenumberedPostingsCursor(live, newIds);
+            }
+        }, positions, maxPartBytes);
+    }
+
+    /**
+     * Gives the path of each part of a segment as it is written.
+     */
+    interface PartFiles {
+        /**
+         * @param part The number of the part, from 0.
+         * @return The path to write the part to.
+         * @throws IOException If the file cannot be created.
+         */
+        Path get(int part) throws IOException;
+    }
+
+    /**
+     * Terms in ascending order of their unsigned UTF-8 bytes, each with its postings.
+     */
+    private interface SortedTerms {
+        /**
+         * @return The bytes of the next term, or null after the last one.
+         */
+        byte[] next();
+
+        /**
+         * @return The postings of the term last returned by {@link #next()}.
+         */
+        PostingsCursor postings();
+    }
+
+    private static List<Path> writeSorted(PartFiles files, DocumentTable documents, Collection<String> roots,
+                                          SortedTerms terms, boolean positions, long maxPartBytes) throws IOException {
+        List<Path> written = new ArrayList<>();
+        try {
+            byte[] next = terms.next();
+            do {
+                Path path = files.get(written.size());
+                written.add(path);
+                boolean first = written.size() == 1;
+                next = writePart(path, first ? documents : null, first ? roots : List.of(), terms, next, positions,
+                        maxPartBytes);
+            } while (next != null);
+            return written;
+        } catch (IOException | RuntimeException e) {
+            for (Path path : written) {
+                Files.deleteIfExists(path);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes one part of a segment, starting with a term already taken from the terms.
+     * @return The first term left for the next part, or null if all terms were written.
+     */
+    private static byte[] writePart(Path path, DocumentTable documents, Collection<String> roots, SortedTerms terms,
+                                    byte[] first, boolean positions, long maxPartBytes) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(positions ? FLAG_POSITIONS : 0);
+            out.writeInt(roots.size());
+            for (String root : roots) {
+                byte[] bytes = root.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            long documentsOffset = out.size();
+            int docCount = documents == null ? 0 : documents.size();
+            for (int docId = 0; docId < docCount; docId++) {
+                if (!documents.isLive(docId)) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] bytes = documents.getPath(docId).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    out.writeLong(documents.getSize(docId));
+                    out.writeLong(documents.getModifiedTime(docId));
+                    out.writeLong(documents.getHash(docId));
+                    out.writeInt(documents.getLength(docId));
+                }
+            }
+
+            long postingsOffset = out.size();
+            List<byte[]> termBytes = new ArrayList<>();
+            int[] postingsStarts = new int[1024];
+            int[] postingsLengths = new int[1024];
+            int[] docFreqs = new int[1024];
+            byte[] encoded = new byte[64];
+            int[] termPositions = new int[16];
+            int[] skips = new int[16];
+            byte[] next = null;
+            for (byte[] term = first; term != null; term = terms.next()) {
+                PostingsCursor cursor = terms.postings();
+                int start = out.size();
+                int docFreq = 0;
+                int lastDocId = -1;
+                int skipCount = 0;
+                while (cursor.next()) {
+                    int freq = cursor.freq();
+                    if (positions) {
+                        if (freq > termPositions.length) {
+                            termPositions = new int[Math.max(freq, termPositions.length * 2)];
+                        }
+                        for (int i = 0; i < freq; i++) {
+                            termPositions[i] = cursor.nextPosition();
+                        }
+                    }
+                    if (PostingList.maxEncodedLength(freq, positions) > encoded.length) {
+                        encoded = new byte[Math.max(PostingList.maxEncodedLength(freq, positions), encoded.length * 2)];
+                    }
+                    int end = PostingList.encode(encoded, 0, cursor.docId() - lastDocId - 1, freq,
+                            positions ? termPositions : null);
+                    out.write(encoded, 0, end);
+                    lastDocId = cursor.docId();
+                    if (++docFreq % PostingList.SKIP_INTERVAL == 0) {
+                        if (2 * skipCount == skips.length) {
+                            skips = Arrays.copyOf(skips, skips.length * 2);
+                        }
+                        skips[2 * skipCount] = lastDocId;
+                        skips[2 * skipCount + 1] = out.size() - start;
+                        skipCount++;
+                    }
+                }
+                if (docFreq == 0) {
+                    // Every document containing the term was deleted
+                    continue;
+                }
+                int postingsLength = out.size() - start;
+                for (int i = 0; i < 2 * skipCount; i++) {
+                    out.writeInt(skips[i]);
+                }
+                int written = termBytes.size();
+                if (written == postingsStarts.length) {
+                    postingsStarts = Arrays.copyOf(postingsStarts, written * 2);
+                    postingsLengths = Arrays.copyOf(postingsLengths, written * 2);
+                    docFreqs = Arrays.copyOf(docFreqs, written * 2);
+                }
+                termBytes.add(term);
+                postingsStarts[written] = (int) (start - postingsOffset);
+                postingsLengths[written] = postingsLength;
+                docFreqs[written] = docFreq;
+                if (out.size() - postingsOffset >= maxPartBytes) {
+                    next = terms.next();
+                    break;
+                }
+            }
+
+            long dictionaryOffset = out.size();
+            int termStart = 0;
+            for (int i = 0; i < termBytes.size(); i++) {
+                out.writeInt(termStart);
+                out.writeInt(termBytes.get(i).length);
+                out.writeLong(postingsStarts[i]);
+                out.writeInt(postingsLengths[i]);
+                out.writeInt(docFreqs[i]);
+                termStart += termBytes.get(i).length;
+            }
+
+            long termsOffset = out.size();
+            for (byte[] bytes : termBytes) {
+                out.write(bytes);
+            }
+
+            // DataOutputStream.size() saturates at Integer.MAX_VALUE, which is also the largest mappable file
+            if (out.size() >= Integer.MAX_VALUE - FOOTER_SIZE) {
+                throw new IOException("Index segment would exceed 2 GB: " + path);
+            }
+            out.writeLong(documentsOffset);
+            out.writeLong(postingsOffset);
+            out.writeLong(dictionaryOffset);
+            out.writeLong(termsOffset);
+            out.writeInt(docCount);
+            out.writeInt(termBytes.size());
+            out.writeInt(MAGIC);
+            return next;
+        }
+    }
+
+    /**
+     * @return The paths the documents of the segment were indexed from, in the order they were written.
+     */
+    List<String> readRoots() {
+        int count = buffer.getInt(12);
+        List<String> roots = new ArrayList<>(count);
+        int position = 16;
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getInt(position)];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + 4);
+            view.get(bytes);
+            position += 4 + bytes.length;
+            roots.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return roots;
+    }
+
+    /**
+     * Reads the document table of the segment, appending every document in ID order.
+     * @param documents The table to append to.
+     */
+    void readDocuments(DocumentTable documents) {
+        int position = documentsOffset;
+        for (int i = 0; i < docCount; i++) {
+            int length = buffer.getInt(position);
+            position += 4;
+            if (length < 0) {
+                documents.add(null, 0, 0, 0, 0);
+            } else {
+                byte[] bytes = new byte[length];
+                ByteBuffer view = buffer.duplicate();
+                view.position(position);
+                view.get(bytes);
+                position += length;
+                documents.add(new String(bytes, StandardCharsets.UTF_8),
+                        buffer.getLong(position), buffer.getLong(position + 8), buffer.getLong(position + 16),
+                        buffer.getInt(position + 24));
+                position += 28;
+            }
+        }
+    }
+
+    /**
+     * @return The number of document IDs covered by the segment, including deleted ones.
+     */
+    int docCount() {
+        return docCount;
+    }
+
+    /**
+     * @return Whether the postings of the segment record positions.
+     */
+    boolean hasPositions() {
+        return positions;
+    }
+
+    int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Decodes the term with the given ordinal, in dictionary order.
+     */
+    String term(int ordinal) {
+        return new String(termBytes(ordinal), StandardCharsets.UTF_8);
+    }
+
+    private byte[] termBytes(int ordinal) {
+        int entry = dictionaryOffset + ordinal * DICTIONARY_ENTRY_SIZE;
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(termsOffset + buffer.getInt(entry));
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Binary searches the term dictionary.
+     * @param term The term to find.
+     * @return The ordinal of the term, or -1 if the segment does not contain it.
+     */
+    int findTerm(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first term in dictionary order that is not smaller than the target.
+     * @param target The term to seek to.
+     * @return The ordinal of that term, or {@link #termCount()} if every term is smaller.
+     */
+    int seekCeil(String target) {
+        byte[] key = target.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = termCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareTerm(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return An enum over the terms of the segment, in dictionary order.
+     */
+    TermsEnum terms() {
+        return new TermsEnum() {
+            private int ordinal = -1;
+
+            @Override
+            public String seekCeil(String target) {
+                ordinal = IndexSegment.this.seekCeil(target) - 1;
+                return next();
+            }
+
+            @Override
+            public String next() {
+                return ++ordinal < termCount ? term(ordinal) : null;
+            }
+        };
+    }
+
+    /**
+     * @return The trigram index of the term dictionary, whose ordinals are those of the segment; built on first use.
+     */
+    TrigramIndex trigrams() {
+        TrigramIndex built = trigrams;
+        if (built == null) {
+            synchronized (this) {
+                built = trigrams;
+                if (built == null) {
+                    built = new TrigramIndex(this::term, termCount);
+                    trigrams = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    /**
+     * @param term The term to look up.
+     * @return A cursor over the postings of the term, or null if the segment does not contain it.
+     */
+    PostingsCursor postings(String term) {
+        int ordinal = findTerm(term);
+        return ordinal < 0 ? null : postings(ordinal);
+    }
+
+    PostingsCursor postings(int ordinal) {
+        int entry = dictionaryOffset + ordinal * DICTIONARY_ENTRY_SIZE;
+        int start = postingsOffset + (int) buffer.getLong(entry + 8);
+        int end = start + buffer.getInt(entry + 16);
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.limit(end);
+        ByteBuffer skips = buffer.duplicate();
+        skips.position(end);
+        skips.limit(end + 8 * (docFreq(ordinal) / PostingList.SKIP_INTERVAL));
+        return new EncodedPostingsCursor(view.slice(), positions, skips.slice().asIntBuffer());
+    }
+
+    int docFreq(int ordinal) {
+        return buffer.getInt(dictionaryOffset + ordinal * DICTIONARY_ENTRY_SIZE + 20);
+    }
+
+    /**
+     * @return The number of postings of all terms, including those of deleted documents. The dictionary is only
+     *         scanned the first time.
+     */
+    long postingCount() {
+        long count = postingCount;
+        if (count < 0) {
+            count = 0;
+            for (int ordinal = 0; ordinal < termCount; ordinal++) {
+                count += docFreq(ordinal);
+            }
+            postingCount = count;
+        }
+        return count;
+    }
+
+    /**
+     * @return The size of the mapped file in bytes.
+     */
+    long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    private int compareTerm(int ordinal, byte[] key) {
+        int entry = dictionaryOffset + ordinal * DICTIONARY_ENTRY_SIZE;
+        int start = termsOffset + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Byte.toUnsignedInt(buffer.get(start + i)) - Byte.toUnsignedInt(key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+}
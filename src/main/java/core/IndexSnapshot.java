@@ -0,0 +1,259 @@
+package core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+
+/**
+ * The IndexSnapshot class is a consistent, read-only view of an {@link Indexer} at one point in time.
+ *
+ * The indexer publishes a new snapshot after every change, and queries run against whichever snapshot
+ * was current when they started, without taking any lock. A snapshot shares the growing in-memory posting
+ * lists with the indexer but only sees the documents that existed when it was taken: postings of later
+ * documents are cut off and deletions are read from a private copy of the deleted set, so a file that is
+ * replaced while a query runs is seen either in its old or its new version, never both or neither.
+ */
+class IndexSnapshot {
+    private final long generation;
+    // A document's postings are in exactly one segment or in memory
+    private final IndexSegment[] segments;
+    private final Map<String, PostingList> index;
+    private final NavigableSet<String> sortedTerms;
+    // The in-memory terms are the first termLogSize entries of the log
+    private final TermLog termLog;
+    private final int termLogSize;
+    private final long inMemoryPostingCount;
+    private final long inMemoryBytes;
+    private final String[] paths;
+    private final int[] lengths;
+    private final int docCount;
+    private final int liveCount;
+    private final long liveLength;
+    private final BitSet deleted;
+
+    /**
+     * Constructor for IndexSnapshot.
+     *
+     * @param generation The number of changes published before this snapshot.
+     * @param segments The on-disk segments, which must not be modified afterwards.
+     * @param index The in-memory postings; must be safe for concurrent reads while the indexer appends to it.
+     * @param sortedTerms The keys of the in-memory postings in sorted order; must be safe for concurrent reads.
+     * @param termLog The keys of the in-memory postings in the order they were added.
+     * @param inMemoryPostingCount The number of in-memory postings, summed over all terms.
+     * @param inMemoryBytes An estimate of the heap used by the in-memory terms and postings.
+     * @param paths The document paths by ID; entries below docCount must never change.
+     * @param lengths The document word counts by ID; entries below docCount must never change.
+     * @param docCount The number of document IDs assigned when the snapshot is taken.
+     * @param liveCount The number of live documents.
+     * @param liveLength The total word count of the live documents.
+     * @param deleted The deleted document IDs, which must not be modified afterwards.
+     */
+    IndexSnapshot(long generation, IndexSegment[] segments, Map<String, PostingList> index, NavigableSet<String> sortedTerms,
+                  TermLog termLog, long inMemoryPostingCount, long inMemoryBytes, String[] paths, int[] lengths, int docCount, int liveCount, long liveLength, BitSet deleted) {
+        this.generation = generation;
+        this.segments = segments;
+        this.index = index;
+        this.sortedTerms = sortedTerms;
+        this.termLog = termLog;
+        this.termLogSize = termLog.size();
+        this.inMemoryPostingCount = inMemoryPostingCount;
+        this.inMemoryBytes = inMemoryBytes;
+        this.paths = paths;
+        this.lengths = lengths;
+        this.docCount = docCount;
+        this.liveCount = liveCount;
+        this.liveLength = liveLength;
+        this.deleted = deleted;
+    }
+
+    /**
+     * Returns the live postings of a term from the on-disk segments and the in-memory index combined.
+     * @param term The lowercased term.
+     * @return A cursor over the postings, or null if the term is not indexed.
+     */
+    PostingsCursor postings(String term) {
+        PostingsCursor[] sources = new PostingsCursor[segments.length + 1];
+        int found = 0;
+        for (IndexSegment segment : segments) {
+            PostingsCursor fromSegment = segment.postings(term);
+            if (fromSegment != null) {
+                sources[found++] = fromSegment;
+            }
+        }
+        PostingList inMemory = index.get(term);
+        if (inMemory != null) {
+            sources[found++] = inMemory.cursor();
+        }
+        if (found == 0) {
+            return null;
+        }
+        // Segment documents all precede docCount, so only deletions need filtering
+        if (found == 1 && inMemory == null && deleted.isEmpty()) {
+            return sources[0];
+        }
+        PostingsCursor cursor = found == 1 ? sources[0] : new MergedPostingsCursor(Arrays.copyOf(sources, found));
+        return new LivePostingsCursor(cursor, deleted, docCount);
+    }
+
+    /**
+     * @return A cursor over every live document, each with a frequency of 0.
+     */
+    PostingsCursor allDocs() {
+        return new LivePostingsCursor(new AllDocsPostingsCursor(docCount), deleted);
+    }
+
+    /**
+     * Estimates how many documents contain a term, for ordering the terms of a query.
+     * @param term The lowercased term.
+     * @return The number of postings of the term, including those of deleted documents.
+     */
+    int docFreq(String term) {
+        int docFreq = 0;
+        for (IndexSegment segment : segments) {
+            int ordinal = segment.findTerm(term);
+            if (ordinal >= 0) {
+                docFreq += segment.docFreq(ordinal);
+            }
+        }
+        PostingList inMemory = index.get(term);
+        return inMemory == null ? docFreq : docFreq + inMemory.size();
+    }
+
+    /**
+     * @return The number of postings in the on-disk segments and the in-memory index, including those of
+     *         deleted documents.
+     */
+    long postingCount() {
+        long count = inMemoryPostingCount;
+        for (IndexSegment segment : segments) {
+            count += segment.postingCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return An estimate of the heap used by the in-memory terms and postings when the snapshot was taken.
+     */
+    long inMemoryBytes() {
+        return inMemoryBytes;
+    }
+
+    /**
+     * @return The number of postings of every term, including those of deleted documents, by term.
+     */
+    Map<String, Integer> docFreqs() {
+        Map<String, Integer> docFreqs = new HashMap<>();
+        for (IndexSegment segment : segments) {
+            for (int ordinal = 0; ordinal < segment.termCount(); ordinal++) {
+                docFreqs.merge(segment.term(ordinal), segment.docFreq(ordinal), Integer::sum);
+            }
+        }
+        index.forEach((term, postings) -> docFreqs.merge(term, postings.size(), Integer::sum));
+        return docFreqs;
+    }
+
+    /**
+     * @return Every indexed term, from the on-disk segments and the in-memory index.
+     *         Terms added to the in-memory index after the snapshot was taken may be included; their postings are empty.
+     */
+    Set<String> terms() {
+        Set<String> terms = new HashSet<>(index.keySet());
+        for (IndexSegment segment : segments) {
+            for (int i = 0; i < segment.termCount(); i++) {
+                terms.add(segment.term(i));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * @return The number of changes published before this snapshot.
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return The on-disk segments, which must not be modified; empty if the index has not been saved, loaded
+     *         or spilled to disk.
+     */
+    IndexSegment[] getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return The in-memory postings by term.
+     */
+    Map<String, PostingList> getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The in-memory terms in sorted order.
+     */
+    NavigableSet<String> getSortedTerms() {
+        return sortedTerms;
+    }
+
+    /**
+     * @return The in-memory terms in the order they were added; only the first {@link #getTermLogSize()} belong
+     *         to this snapshot.
+     */
+    TermLog getTermLog() {
+        return termLog;
+    }
+
+    int getTermLogSize() {
+        return termLogSize;
+    }
+
+    /**
+     * @return The deleted document IDs, which must not be modified.
+     */
+    BitSet getDeleted() {
+        return deleted;
+    }
+
+    String getPath(int docId) {
+        return paths[docId];
+    }
+
+    /**
+     * @return The number of words in a document.
+     */
+    int getLength(int docId) {
+        return lengths[docId];
+    }
+
+    /**
+     * @return The total number of words in the live documents.
+     */
+    long liveLength() {
+        return liveLength;
+    }
+
+    /**
+     * @return The average number of words in a live document, or 0 if there are none.
+     */
+    double averageLength() {
+        return liveCount == 0 ? 0 : (double) liveLength / liveCount;
+    }
+
+    /**
+     * @return The number of document IDs assigned when the snapshot was taken, including deleted ones.
+     */
+    int docCount() {
+        return docCount;
+    }
+
+    /**
+     * @return The number of live documents.
+     */
+    int liveCount() {
+        return liveCount;
+    }
+}
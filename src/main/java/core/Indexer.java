@@ -1,18 +1,124 @@
 package core;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.regex.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 /**
  * The Indexer class provides functionality to index words in text files within a directory,
  * allowing for a search operation that identifies files containing specific terms.
+ *
+ * The Indexer is safe for use from several threads. Files are read and tokenized without holding any lock,
+ * and changes are applied by one writer at a time, each file under a short-lived write lock.
+ * Queries never lock: after every change the writer publishes an immutable {@link IndexSnapshot},
+ * and each query reads the snapshot that was current when it started, so queries running while files are
+ * indexed neither wait for the writer nor see a half-applied file.
+ *
+ * Postings are kept in immutable, memory-mapped segments plus the in-memory postings of recently indexed
+ * files, and queries read all of them as one index. {@link #flush()} writes the in-memory postings to a new
+ * segment, and deleted documents are only marked in the document table until a merge drops their postings.
+ * After every flush, a {@link TieredMergePolicy} picks segments of similar size to merge on a background
+ * thread, and the merged segment replaces them without blocking queries or indexing.
  */
 public class Indexer {
-    private Map<String, Map<String, Integer>> index = new HashMap<>();
+    // Files are read in chunks of this size, so memory use does not grow with the size of a file
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    // Direct, so that the channel reads straight into it without an extra copy
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER_SIZE));
+    // A wildcard pattern starting with this many literal characters is matched by a scan of the sorted terms
+    // that start with them, which visits fewer terms than a trigram lookup
+    private static final int TRIGRAM_PREFIX_LENGTH = 3;
+    // How many files each worker may have parsed ahead of the file being added to the index
+    private static final int PARSE_AHEAD_PER_WORKER = 2;
+
+    private final boolean positions;
+    // When several indexers split the files between them, this one only indexes the files of its own shard
+    private volatile int shard;
+    private volatile int shardCount = 1;
+
+    // The in-memory postings are shared with published snapshots, so both maps allow concurrent reads
+    private Map<String, PostingList> index = new ConcurrentHashMap<>();
+    // The keys of the in-memory index in sorted order, for prefix and wildcard matching
+    private NavigableSet<String> sortedTerms = new ConcurrentSkipListSet<>();
+    // The same keys in the order they were added, for infix and suffix wildcard matching
+    private TermLog termLog = new TermLog();
+    private DocumentTable documents = new DocumentTable();
+    // The paths passed to indexDirectory, saved with the index so that they can be checked again after a load
+    private final Set<String> roots = new ConcurrentSkipListSet<>();
+    // Postings on disk: a loaded segment and the segments flushed and merged since. A document's postings of a
+    // term are in exactly one of them: segments either hold different documents or, as parts, different terms
+    private IndexSegment[] segments = new IndexSegment[0];
+    // The first document whose postings are held in memory rather than in a segment
+    private int firstInMemoryDoc;
+    private int deletedInMemory;
+    // An estimate of the heap used by the in-memory postings
+    private long inMemoryBytes;
+    // The number of in-memory postings, kept up to date so that metrics need not count them
+    private long inMemoryPostings;
+    // 0 means the in-memory postings may grow without limit
+    private long ramBudget;
+    // Null means the system temporary directory
+    private Path spillDirectory;
+    // Segments whose postings grow beyond this are written as several files
+    private long maxPartBytes = IndexSegment.MAX_PART_BYTES;
+    // The files of the segments this indexer wrote, deleted once the segments are merged away or replaced
+    private final Map<IndexSegment, Path> segmentFiles = new IdentityHashMap<>();
+    private final TieredMergePolicy mergePolicy = new TieredMergePolicy();
+    // Runs one merge at a time, created on first use
+    private ExecutorService merger;
+    private boolean merging;
+    // Whether documents were deleted since the last snapshot, which then needs its own copy of the deleted set
+    private boolean deletedChanged;
+    // Incremented by every published change
+    private long generation;
+    private volatile boolean modified;
+    // Counts the distinct terms of the snapshots asked about, picking up where the last count left off
+    private final TermCounter termCounter = new TermCounter();
+    private volatile IndexSnapshot snapshot = new IndexSnapshot(0, segments, index, sortedTerms, termLog, 0, 0, documents.getPaths(),
+            documents.getLengths(), 0, 0, 0, new BitSet());
     private SpellChecker spellChecker;
+    private volatile IndexingStats lastIndexingStats;
+    private final AtomicReference<IndexingStats> totalIndexingStats = new AtomicReference<>(new IndexingStats(0, 0, 0, 0, 0, 0));
+    private volatile DirectoryWatcher watcher;
+    // Held by the single writer; queries read the published snapshot instead
+    private final Lock lock = new ReentrantLock();
+    // Signalled when a background merge finishes
+    private final Condition mergeFinished = lock.newCondition();
+
+    /**
+     * Constructor for Indexer. The index does not record positions, so phrases cannot be searched.
+     */
+    public Indexer() {
+        this(false);
+    }
+
+    /**
+     * Constructor for Indexer.
+     * @param recordPositions Whether to record the position of every word, which {@link #searchPhrase(String)} needs.
+     */
+    public Indexer(boolean recordPositions) {
+        this.positions = recordPositions;
+    }
+
+    /**
+     * @return Whether the index records the position of every word, so that phrases can be searched.
+     */
+    public boolean recordsPositions() {
+        return positions;
+    }
+
     /**
      * Indexes all regular files within the specified directory path.
      * This method recursively walks through the directory and indexes each file found.
@@ -20,42 +126,873 @@ public class Indexer {
      * @param directoryPath The path of the directory to index.
      */
     public void indexDirectory(String directoryPath) {
-        try {
-            Files.walk(Paths.get(directoryPath))
-                    .filter(Files::isRegularFile)
-                    .forEach(filePath -> {
-                        try {
-                            indexFile(filePath.toString());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    });
+        indexDirectory(directoryPath, 1);
+    }
+
+    /**
+     * Indexes all regular files within the specified directory path using the given number of worker threads.
+     * The workers read and tokenize files into private per-file term counts, at most a few files per worker ahead
+     * of the calling thread, which adds each file to the index as soon as it and every file before it in walk order
+     * are parsed. Files are thus added in walk order, so the result is identical to indexing them sequentially, and
+     * only a few parsed files are held at a time, so the RAM budget is checked after every file.
+     *
+     * Indexing is incremental: files whose size and modification time match the indexed copy are skipped,
+     * changed files replace their previous postings, and indexed files below the directory that no longer
+     * exist are removed from the index. If {@link #startWatching(long)} was called, the directory is watched
+     * for further changes afterwards.
+     *
+     * @param directoryPath The path of the directory to index.
+     * @param workers The number of worker threads; values below 2 index on the calling thread.
+     */
+    public void indexDirectory(String directoryPath, int workers) {
+        Path directory = Paths.get(directoryPath);
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.filter(Files::isRegularFile).filter(this::ownsFile).collect(Collectors.toList());
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+
+        long start = System.nanoTime();
+        workers = workers < 2 || files.size() < 2 ? 1 : Math.min(workers, files.size());
+        InOrderParser parser = workers > 1 ? new InOrderParser(files, workers) : null;
+
+        long bytes = 0;
+        long tokens = 0;
+        int skipped = 0;
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                // Documents are added in walk order, so they receive the same IDs as in a sequential run
+                ParsedFile parsedFile = parser != null ? parser.next() : parseQuietly(files.get(i));
+                if (parsedFile != null) {
+                    bytes += parsedFile.bytesRead;
+                    tokens += parsedFile.length;
+                    if (!parsedFile.changed) {
+                        skipped++;
+                    }
+                    applyLocked(parsedFile);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            if (parser != null) {
+                parser.close();
+            }
+        }
+        if (Files.isDirectory(directory)) {
+            removeMissingFiles(directory, files);
+        }
+        roots.add(directoryPath);
+        IndexingStats run = new IndexingStats(files.size(), skipped, bytes, tokens, System.nanoTime() - start, workers);
+        lastIndexingStats = run;
+        totalIndexingStats.accumulateAndGet(run, IndexingStats::plus);
+
+        DirectoryWatcher currentWatcher = watcher;
+        if (currentWatcher != null) {
+            try {
+                currentWatcher.register(directory);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Brings the index up to date with the disk below every path passed to {@link #indexDirectory}, including the
+     * paths of an index that was loaded: changed and new files are indexed and files that no longer exist are
+     * removed, as are paths that no longer exist at all. If {@link #startWatching(long)} was called, the paths are
+     * watched for further changes afterwards.
+     *
+     * @param workers The number of worker threads; values below 2 index on the calling thread.
+     */
+    public void refresh(int workers) {
+        for (String root : roots) {
+            if (Files.exists(Paths.get(root))) {
+                indexDirectory(root, workers);
+            } else {
+                removeTree(root);
+            }
+        }
+    }
+
+    /**
+     * @return The paths passed to {@link #indexDirectory}, including those of a loaded index, in sorted order.
+     */
+    public List<String> getRoots() {
+        return new ArrayList<>(roots);
+    }
+
+    /**
+     * Starts watching every directory subsequently passed to {@link #indexDirectory} on a background thread,
+     * and applies file creations, modifications and deletions to the index as they happen.
+     * Events are batched and applied once no further event has arrived for the debounce interval.
+     *
+     * @param debounceMillis How long to wait for further events before applying a batch.
+     * @throws IOException If the file system does not support watching.
+     */
+    public void startWatching(long debounceMillis) throws IOException {
+        if (watcher == null) {
+            watcher = new DirectoryWatcher(this, debounceMillis);
+        }
+    }
+
+    /**
+     * Stops the background watcher started by {@link #startWatching(long)}.
+     */
+    public void stopWatching() {
+        DirectoryWatcher currentWatcher = watcher;
+        watcher = null;
+        if (currentWatcher != null) {
+            try {
+                currentWatcher.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Limits the heap used by the postings of newly indexed files. Whenever they grow beyond the budget, they are
+     * flushed to a new segment on disk, which is memory-mapped and searched like a saved index, and the heap is
+     * freed. The segments are merged in the background as they accumulate, so the size of the corpus is limited
+     * by disk space rather than by the heap. The document paths stay in memory.
+     *
+     * @param maxBytes The most bytes of postings to keep in memory, or 0 for no limit.
+     */
+    public void setRamBudget(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("RAM budget must not be negative");
+        }
+        lock.lock();
+        try {
+            ramBudget = maxBytes;
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Sets the size of postings after which a flushed, merged or saved segment continues in another file.
+     * @param maxBytes The size in bytes, at most {@link IndexSegment#MAX_PART_BYTES}.
+     */
+    void setMaxPartBytes(long maxBytes) {
+        lock.lock();
+        try {
+            maxPartBytes = Math.min(maxBytes, IndexSegment.MAX_PART_BYTES);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets where flushed and merged segments are written.
+     * @param directory The directory for temporary segment files, or null for the system temporary directory.
+     */
+    public void setSpillDirectory(String directory) {
+        lock.lock();
+        try {
+            spillDirectory = directory == null ? null : Paths.get(directory);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes this indexer one of several shards that split the files between them by a hash of the path.
+     * Afterwards, {@link #indexDirectory} and {@link #indexFile(String)} ignore files of other shards, so the
+     * shards can be given the same directories; {@link Search} queries all shards of an index together.
+     * Must be set before any file is indexed.
+     *
+     * @param shard The number of this shard, from 0 to shardCount - 1.
+     * @param shardCount The number of shards.
+     * @throws IllegalStateException If files were indexed or loaded already.
+     */
+    public void setShard(int shard, int shardCount) {
+        if (shardCount < 1 || shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Invalid shard " + shard + " of " + shardCount);
+        }
+        lock.lock();
+        try {
+            if (documents.size() > 0) {
+                throw new IllegalStateException("The shard must be set before any file is indexed");
+            }
+            this.shard = shard;
+            this.shardCount = shardCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether the file belongs to the shard of this indexer.
+     */
+    private boolean ownsFile(Path file) {
+        int count = shardCount;
+        return count == 1 || Math.floorMod(file.toString().hashCode(), count) == shard;
+    }
+
+    /**
+     * Returns the volume and throughput of the most recent {@link #indexDirectory} run.
+     *
+     * @return The statistics of the last run, or null if no directory has been indexed yet.
+     */
+    public IndexingStats getLastIndexingStats() {
+        return lastIndexingStats;
+    }
+
+    /**
+     * Returns the volume and throughput of all indexing so far, including single files indexed by
+     * {@link #indexFile(String)} and the background watcher.
+     *
+     * @return The sum of all indexing runs.
+     */
+    public IndexingStats getTotalIndexingStats() {
+        return totalIndexingStats.get();
+    }
+
     /**
      * Indexes a single file, extracting and counting each word within the file.
      * Each word is indexed along with its occurrence count in the provided file path.
+     * If the file was indexed before, it is skipped when unchanged and its previous postings are replaced otherwise.
+     * Files of another shard, see {@link #setShard(int, int)}, are ignored.
      *
      * @param filePath The path of the file to index.
      * @throws IOException If an I/O error occurs reading from the file.
      */
     public void indexFile(String filePath) throws IOException {
-        Pattern pattern = Pattern.compile("\\w+");
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                Matcher matcher = pattern.matcher(line);
-                while (matcher.find()) {
-                    String word = matcher.group().toLowerCase();
-                    Map<String, Integer> fileCounts = index.getOrDefault(word, new HashMap<>());
-                    fileCounts.put(filePath, fileCounts.getOrDefault(filePath, 0) + 1);
-                    index.put(word, fileCounts);
+        Path file = Paths.get(filePath);
+        if (!ownsFile(file)) {
+            return;
+        }
+        long start = System.nanoTime();
+        ParsedFile parsed = parse(file);
+        applyLocked(parsed);
+        totalIndexingStats.accumulateAndGet(new IndexingStats(1, parsed.changed ? 0 : 1, parsed.bytesRead, parsed.length,
+                System.nanoTime() - start, 1), IndexingStats::plus);
+    }
+
+    /**
+     * Removes a file from the index.
+     *
+     * @param filePath The path the file was indexed under.
+     * @return true if the file was indexed, false otherwise.
+     */
+    public boolean removeFile(String filePath) {
+        DirectoryWatcher currentWatcher = watcher;
+        if (currentWatcher != null) {
+            currentWatcher.unregisterFile(Paths.get(filePath));
+        }
+        lock.lock();
+        try {
+            int docId = documents.getId(filePath);
+            if (docId < 0) {
+                return false;
+            }
+            deleteDocument(docId);
+            publish();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a file, or every file below a directory, from the index.
+     * @param path The path of the file or directory as it was indexed.
+     */
+    void removeTree(String path) {
+        String prefix = path + File.separator;
+        roots.removeIf(root -> root.equals(path) || root.startsWith(prefix));
+        lock.lock();
+        try {
+            List<String> removed = new ArrayList<>();
+            for (String livePath : documents.livePaths()) {
+                if (livePath.equals(path) || livePath.startsWith(prefix)) {
+                    removed.add(livePath);
+                }
+            }
+            removed.forEach(removedPath -> deleteDocument(documents.getId(removedPath)));
+            if (!removed.isEmpty()) {
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads and tokenizes a file unless the indexed copy is known to be current.
+     * A file is current if its size and modification time are unchanged, or if its content hash is unchanged.
+     */
+    private ParsedFile parse(Path file) throws IOException {
+        String filePath = file.toString();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modifiedTime = attributes.lastModifiedTime().toMillis();
+        int docId;
+        long indexedSize = -1;
+        long indexedHash = 0;
+        // The document table belongs to the writer
+        lock.lock();
+        try {
+            docId = documents.getId(filePath);
+            if (docId >= 0) {
+                if (documents.getSize(docId) == size && documents.getModifiedTime(docId) == modifiedTime) {
+                    return new ParsedFile(filePath, size, modifiedTime, documents.getHash(docId), null, 0);
+                }
+                indexedSize = documents.getSize(docId);
+                indexedHash = documents.getHash(docId);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = READ_BUFFER.get();
+            long bytesRead = 0;
+            if (indexedSize == size) {
+                // Only the content hash can tell whether the file changed, so avoid tokenizing it if it did not
+                CRC32C crc = new CRC32C();
+                while (fill(channel, buffer)) {
+                    bytesRead += buffer.remaining();
+                    crc.update(buffer);
+                }
+                bytesRead += buffer.remaining();
+                crc.update(buffer);
+                if (crc.getValue() == indexedHash) {
+                    return new ParsedFile(filePath, size, modifiedTime, indexedHash, null, bytesRead);
+                }
+                // The file is read again to tokenize it; count its bytes once, so the throughput is not inflated
+                channel.position(0);
+                bytesRead = 0;
+            }
+
+            CRC32C crc = new CRC32C();
+            Tokenizer tokenizer = new Tokenizer();
+            Map<String, Occurrences> termCounts = new HashMap<>();
+            int position = 0;
+            boolean more;
+            do {
+                more = fill(channel, buffer);
+                bytesRead += buffer.remaining();
+                crc.update(buffer);
+                buffer.rewind();
+                tokenizer.setInput(buffer, !more);
+                String word;
+                while ((word = tokenizer.next()) != null) {
+                    termCounts.computeIfAbsent(word, key -> new Occurrences(positions)).add(position++);
+                }
+            } while (more);
+            return new ParsedFile(filePath, size, modifiedTime, crc.getValue(), termCounts, bytesRead);
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer is full or the file ends, and flips the buffer for reading.
+     *
+     * @return Whether the file may have more content.
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        int read = 0;
+        while (buffer.hasRemaining() && (read = channel.read(buffer)) >= 0) {
+            // Keep reading until the buffer is full
+        }
+        buffer.flip();
+        return read >= 0;
+    }
+
+    private ParsedFile parseQuietly(Path file) {
+        try {
+            return parse(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Brings the index up to date with a parsed file, replacing the postings of its previous version if it changed.
+     */
+    private void applyLocked(ParsedFile parsed) {
+        lock.lock();
+        try {
+            apply(parsed);
+            if (parsed.changed) {
+                boolean flushed = ramBudget > 0 && inMemoryBytes > ramBudget && flushLocked();
+                publish();
+                if (flushed) {
+                    maybeMerge();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(ParsedFile parsed) {
+        int docId = documents.getId(parsed.path);
+        if (!parsed.changed) {
+            if (docId >= 0) {
+                documents.setModifiedTime(docId, parsed.modifiedTime);
+            }
+            return;
+        }
+        if (docId >= 0) {
+            deleteDocument(docId);
+        }
+        int newDocId = documents.add(parsed.path, parsed.size, parsed.modifiedTime, parsed.hash, parsed.length);
+        modified = true;
+        parsed.termCounts.forEach((word, occurrences) -> {
+            PostingList postings = index.get(word);
+            if (postings == null) {
+                postings = new PostingList(positions);
+                index.put(word, postings);
+                sortedTerms.add(word);
+                termLog.add(word);
+                inMemoryBytes += termBytesUsed(word);
+            }
+            long before = postings.ramBytesUsed();
+            postings.add(newDocId, occurrences.freq, occurrences.positions);
+            inMemoryPostings++;
+            inMemoryBytes += postings.ramBytesUsed() - before;
+        });
+    }
+
+    /**
+     * Estimates the heap used by a term of the in-memory index, apart from its postings.
+     */
+    private static long termBytesUsed(String term) {
+        // Map node, skip list node and the term String with its backing array
+        return 32 + 40 + 40 + term.length();
+    }
+
+    /**
+     * Writes the postings of the files indexed since the last flush to a new segment, frees their memory and
+     * starts merging segments if the merge policy finds enough of a similar size. Queries see no difference.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (flushLocked()) {
+                // Flushing changes how the index is stored, not what queries find
+                publish(generation);
+                maybeMerge();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Merges all segments and in-memory postings into a single segment, dropping the postings of deleted
+     * documents, which makes queries read one dictionary per term. The live documents are renumbered, so the
+     * document table no longer holds the IDs of deleted ones. Waits for a running background merge first;
+     * indexing waits until the merge is done, but queries do not.
+     */
+    public void forceMerge() {
+        lock.lock();
+        try {
+            while (merging) {
+                mergeFinished.awaitUninterruptibly();
+            }
+            flushLocked();
+            BitSet deleted = documents.getDeleted();
+            if (!deleted.isEmpty() && index.isEmpty()) {
+                // Every posting is in a segment, so all of them are rewritten with the new IDs
+                int[] newIds = new int[documents.size()];
+                DocumentTable compacted = documents.compact(newIds);
+                if (segments.length > 0) {
+                    List<IndexSegment> sources = Arrays.asList(segments);
+                    replaceSegments(sources, mergeSegments(sources, deleted, newIds, maxPartBytes));
+                }
+                documents = compacted;
+                firstInMemoryDoc = compacted.size();
+                deletedInMemory = 0;
+                deletedChanged = true;
+            } else if (segments.length > 1 || segments.length == 1 && !deleted.isEmpty()) {
+                List<IndexSegment> sources = Arrays.asList(segments);
+                replaceSegments(sources, mergeSegments(sources, deleted, null, maxPartBytes));
+            }
+            publish(generation);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until background merges have finished, including merges of the segments they produced.
+     */
+    public void waitForMerges() {
+        lock.lock();
+        try {
+            while (merging) {
+                mergeFinished.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of segments on disk, not counting the postings still in memory.
+     */
+    public int getSegmentCount() {
+        return snapshot.getSegments().length;
+    }
+
+    /**
+     * Writes the in-memory postings to a new segment and empties the in-memory index. Must be called holding
+     * the lock, and followed by publishing a snapshot if it returns true.
+     *
+     * @return Whether a segment was written; false if there was nothing to flush or the segment could not be
+     *         written, in which case the postings stay in memory.
+     */
+    private boolean flushLocked() {
+        if (index.isEmpty()) {
+            return false;
+        }
+        try {
+            BitSet deleted = documents.getDeleted();
+            Map<String, PostingList> flushed = index;
+            List<Path> files = IndexSegment.write(part -> newSegmentFile(), null, List.of(), sortedTerms,
+                    term -> new LivePostingsCursor(flushed.get(term).cursor(), deleted), positions, maxPartBytes);
+            List<IndexSegment> flushedSegments = openParts(files);
+            segments = Arrays.copyOf(segments, segments.length + flushedSegments.size());
+            for (int i = 0; i < flushedSegments.size(); i++) {
+                segments[segments.length - flushedSegments.size() + i] = flushedSegments.get(i);
+                segmentFiles.put(flushedSegments.get(i), files.get(i));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        // The old maps are left untouched for snapshots that are still being read
+        index = new ConcurrentHashMap<>();
+        sortedTerms = new ConcurrentSkipListSet<>();
+        termLog = new TermLog();
+        inMemoryBytes = 0;
+        inMemoryPostings = 0;
+        firstInMemoryDoc = documents.size();
+        deletedInMemory = 0;
+        return true;
+    }
+
+    /**
+     * Starts a background merge if none is running and the merge policy finds segments to merge.
+     * Must be called holding the lock.
+     */
+    private void maybeMerge() {
+        List<IndexSegment> sources = mergePolicy.findMerge(segments);
+        if (merging || sources.isEmpty()) {
+            return;
+        }
+        if (merger == null) {
+            merger = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Segment merger");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        merging = true;
+        // Documents deleted while the merge runs are still skipped through the snapshots' deleted set
+        BitSet deleted = (BitSet) documents.getDeleted().clone();
+        merger.execute(() -> {
+            List<IndexSegment> merged = null;
+            try {
+                // The merge policy keeps background merges well below the size of a part
+                merged = mergeSegments(sources, deleted, null, Long.MAX_VALUE);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+            lock.lock();
+            try {
+                merging = false;
+                if (merged != null) {
+                    replaceSegments(sources, merged);
+                    // The merge changes how the index is stored, not what queries find
+                    publish(generation);
+                    maybeMerge();
+                }
+                mergeFinished.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Merges segments into a new segment, which is read only, so the lock need not be held.
+     * @param newIds The new ID of each document by old ID, or null to keep the IDs.
+     * @param maxPartBytes The size of postings after which the merged segment continues in another file.
+     * @return The parts of the merged segment.
+     */
+    private List<IndexSegment> mergeSegments(List<IndexSegment> sources, BitSet deleted, int[] newIds,
+                                             long maxPartBytes) throws IOException {
+        List<Path> files = IndexSegment.merge(part -> newSegmentFile(), null, sources, deleted, newIds, positions,
+                maxPartBytes);
+        List<IndexSegment> merged = openParts(files);
+        lock.lock();
+        try {
+            for (int i = 0; i < merged.size(); i++) {
+                segmentFiles.put(merged.get(i), files.get(i));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return merged;
+    }
+
+    /**
+     * Opens the parts of a segment that was just written, deleting all of them if one cannot be opened.
+     */
+    private static List<IndexSegment> openParts(List<Path> files) throws IOException {
+        List<IndexSegment> parts = new ArrayList<>();
+        try {
+            for (Path file : files) {
+                parts.add(IndexSegment.open(file));
+            }
+            return parts;
+        } catch (IOException e) {
+            files.forEach(Indexer::deleteQuietly);
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces the merged segments with the result of their merge, unless the segments were replaced by a
+     * load in the meantime, and deletes the files of the merged segments. Must be called holding the lock.
+     */
+    private void replaceSegments(List<IndexSegment> sources, List<IndexSegment> merged) {
+        Set<IndexSegment> missing = Collections.newSetFromMap(new IdentityHashMap<>());
+        missing.addAll(sources);
+        List<IndexSegment> remaining = new ArrayList<>();
+        for (IndexSegment segment : segments) {
+            if (!missing.remove(segment)) {
+                remaining.add(segment);
+            }
+        }
+        if (!missing.isEmpty()) {
+            merged.forEach(part -> deleteQuietly(segmentFiles.remove(part)));
+            return;
+        }
+        remaining.addAll(merged);
+        segments = remaining.toArray(new IndexSegment[0]);
+        for (IndexSegment source : sources) {
+            deleteQuietly(segmentFiles.remove(source));
+        }
+    }
+
+    private Path newSegmentFile() throws IOException {
+        Path file = Files.createTempFile(spillDirectory != null ? spillDirectory : Paths.get(System.getProperty("java.io.tmpdir")),
+                "index", ".seg");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Deletes a segment file. Snapshots still reading it are unaffected where the platform lets a mapped file be
+     * deleted; elsewhere it is deleted on exit instead.
+     */
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Still mapped; deleted on exit instead
+            }
+        }
+    }
+
+    /**
+     * Removes indexed files below the directory that were not found by the latest walk.
+     */
+    private void removeMissingFiles(Path directory, List<Path> files) {
+        Set<String> found = files.stream().map(Path::toString).collect(Collectors.toSet());
+        String prefix = directory.toString() + File.separator;
+        lock.lock();
+        try {
+            List<String> missing = new ArrayList<>();
+            for (String path : documents.livePaths()) {
+                if (path.startsWith(prefix) && !found.contains(path)) {
+                    missing.add(path);
+                }
+            }
+            missing.forEach(path -> deleteDocument(documents.getId(path)));
+            if (!missing.isEmpty()) {
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks a document deleted. Its postings stay in place and are skipped by queries until
+     * more than half of the in-memory documents are deleted, at which point the in-memory posting lists are rewritten.
+     */
+    private void deleteDocument(int docId) {
+        documents.delete(docId);
+        deletedChanged = true;
+        modified = true;
+        if (docId >= firstInMemoryDoc && ++deletedInMemory * 2 > documents.size() - firstInMemoryDoc) {
+            purgeDeletedPostings();
+        }
+    }
+
+    private void purgeDeletedPostings() {
+        BitSet deleted = documents.getDeleted();
+        Map<String, PostingList> purged = new ConcurrentHashMap<>();
+        NavigableSet<String> purgedTerms = new ConcurrentSkipListSet<>();
+        TermLog purgedLog = new TermLog();
+        inMemoryBytes = 0;
+        inMemoryPostings = 0;
+        for (Map.Entry<String, PostingList> entry : index.entrySet()) {
+            PostingList live = PostingList.copyOf(new LivePostingsCursor(entry.getValue().cursor(), deleted), positions);
+            if (live.size() > 0) {
+                purged.put(entry.getKey(), live);
+                purgedTerms.add(entry.getKey());
+                purgedLog.add(entry.getKey());
+                inMemoryBytes += termBytesUsed(entry.getKey()) + live.ramBytesUsed();
+                inMemoryPostings += live.size();
+            }
+        }
+        // The old lists are left untouched for snapshots that are still being read
+        index = purged;
+        sortedTerms = purgedTerms;
+        termLog = purgedLog;
+        deletedInMemory = 0;
+    }
+
+    /**
+     * Makes the current state of the index visible to queries. Must be called holding the lock.
+     */
+    private void publish() {
+        publish(generation + 1);
+    }
+
+    /**
+     * Publishes a snapshot under the given generation, which stays the same when only the storage of the
+     * index changed, so that cached results remain valid.
+     */
+    private void publish(long newGeneration) {
+        generation = newGeneration;
+        BitSet deleted = snapshot.getDeleted();
+        if (deletedChanged) {
+            deleted = (BitSet) documents.getDeleted().clone();
+            deletedChanged = false;
+        }
+        snapshot = new IndexSnapshot(generation, segments, index, sortedTerms, termLog, inMemoryPostings, inMemoryBytes,
+                documents.getPaths(), documents.getLengths(), documents.size(), documents.liveCount(), documents.liveLength(),
+                deleted);
+    }
+
+    /**
+     * Parses files on a pool of worker threads and hands them out in walk order.
+     *
+     * Only a window of twice as many files as there are workers is parsed ahead of the file being applied, and each
+     * parsed file is dropped as soon as it is handed out, so memory holds the postings of a few files rather than
+     * the whole tree, and the RAM budget can flush the index between files as in a sequential run.
+     */
+    private class InOrderParser implements AutoCloseable {
+        private final List<Path> files;
+        private final ExecutorService executor;
+        private final int window;
+        private final Deque<Future<ParsedFile>> inFlight = new ArrayDeque<>();
+        private int submitted;
+
+        InOrderParser(List<Path> files, int workers) {
+            this.files = files;
+            this.executor = Executors.newFixedThreadPool(workers);
+            this.window = workers * PARSE_AHEAD_PER_WORKER;
+        }
+
+        /**
+         * Waits for the next file in walk order to be parsed.
+         * @return The parsed file, or null if it could not be read.
+         * @throws InterruptedException If interrupted while waiting.
+         */
+        ParsedFile next() throws InterruptedException {
+            while (submitted < files.size() && inFlight.size() < window) {
+                Path file = files.get(submitted++);
+                inFlight.add(executor.submit(() -> parseQuietly(file)));
+            }
+            try {
+                return inFlight.remove().get();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        /**
+         * Drops the files not handed out yet; files being read are finished but discarded.
+         */
+        @Override
+        public void close() {
+            inFlight.forEach(future -> future.cancel(false));
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The result of reading a file: its metadata, and its term counts if the content changed since it was last indexed.
+     */
+    private static class ParsedFile {
+        final String path;
+        final long size;
+        final long modifiedTime;
+        final long hash;
+        final Map<String, Occurrences> termCounts;
+        final boolean changed;
+        final long bytesRead;
+        final int length;
+
+        ParsedFile(String path, long size, long modifiedTime, long hash, Map<String, Occurrences> termCounts, long bytesRead) {
+            this.path = path;
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+            this.hash = hash;
+            this.termCounts = termCounts;
+            this.changed = termCounts != null;
+            this.bytesRead = bytesRead;
+            int words = 0;
+            if (termCounts != null) {
+                for (Occurrences occurrences : termCounts.values()) {
+                    words += occurrences.freq;
                 }
             }
+            this.length = words;
+        }
+    }
+
+    /**
+     * The occurrences of one word in a parsed file.
+     */
+    private static class Occurrences {
+        int freq;
+        // Null unless positions are recorded
+        int[] positions;
+
+        Occurrences(boolean recordPositions) {
+            if (recordPositions) {
+                positions = new int[4];
+            }
+        }
+
+        void add(int position) {
+            if (positions != null) {
+                if (freq == positions.length) {
+                    positions = Arrays.copyOf(positions, freq * 2);
+                }
+                positions[freq] = position;
+            }
+            freq++;
         }
     }
 
@@ -67,20 +1004,291 @@ public class Indexer {
      * @return A list of Map entries, where each entry represents a file path and the count of the term's occurrences in that file, sorted by the count in descending order.
      */
     public List<Map.Entry<String, Integer>> search(String term) {
-        term = term.toLowerCase(); 
-        Map<String, Integer> cumulativeResults = new HashMap<>();
-        for (String indexedWord : index.keySet()) {
-            if (indexedWord.toLowerCase().equals(term)) {
-                Map<String, Integer> fileCounts = index.get(indexedWord);
+        IndexSnapshot current = snapshot;
+        // Index keys are stored lowercased, so the postings are a single dictionary lookup away
+        return collect(current, current.postings(Tokenizer.lowercase(term)));
+    }
+
+    /**
+     * Searches the indexed data for files containing the words of a phrase next to each other and in order.
+     * Words are extracted from the phrase the same way as from files, so punctuation between them is ignored;
+     * a phrase of a single word is searched like {@link #search(String)}.
+     *
+     * @param phrase The phrase to find within the indexed files.
+     * @return A list of Map entries, where each entry represents a file path and the number of occurrences of the phrase in that file, sorted by the count in descending order.
+     * @throws IllegalStateException If the phrase has several words and the index does not record positions.
+     */
+    public List<Map.Entry<String, Integer>> searchPhrase(String phrase) {
+        List<String> words = QueryParser.words(phrase);
+        if (words.size() < 2) {
+            return words.isEmpty() ? new ArrayList<>() : search(words.get(0));
+        }
+        if (!positions) {
+            throw new IllegalStateException("Phrase search needs an index that records positions");
+        }
+        IndexSnapshot current = snapshot;
+        return collect(current, new PhraseQuery(words.toArray(new String[0])).postings(current));
+    }
 
-                fileCounts.forEach((filePath, count) -> cumulativeResults.merge(filePath, count, Integer::sum));
+    /**
+     * Searches the indexed data for files matching a boolean query. Words can be combined with {@code AND},
+     * {@code OR} and {@code NOT}, written in capitals, and grouped with parentheses; words next to each other
+     * must all match, and a quoted phrase must match exactly. For example: {@code apple AND (banana OR "cherry pie") NOT date}.
+     *
+     * @param query The boolean query.
+     * @return A list of Map entries, where each entry represents a file path and the total occurrences of the matched words in that file, sorted by the count in descending order.
+     * @throws IllegalArgumentException If the query is empty or malformed.
+     * @throws IllegalStateException If the query contains a phrase of several words and the index does not record positions.
+     */
+    public List<Map.Entry<String, Integer>> searchBoolean(String query) {
+        Query parsed = QueryParser.parse(query);
+        if (!positions && parsed.needsPositions()) {
+            throw new IllegalStateException("Phrase search needs an index that records positions");
+        }
+        IndexSnapshot current = snapshot;
+        return collect(current, parsed.postings(current));
+    }
+
+    /**
+     * Ranks the indexed files by relevance to the words of a query using Okapi BM25, and returns the best ones.
+     * A file matches if it contains any of the words; rare words weigh more than common ones, and scores are
+     * normalized for file length, so a long file does not rank first merely because it repeats a word more often.
+     *
+     * @param query The words to search for; punctuation is ignored.
+     * @param k The maximum number of files to return.
+     * @return A list of Map entries, where each entry represents a file path and its relevance score, sorted by the score in descending order.
+     * @throws IllegalArgumentException If k is not positive.
+     */
+    public List<Map.Entry<String, Double>> searchRanked(String query, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        String[] words = new LinkedHashSet<>(QueryParser.words(query)).toArray(new String[0]);
+        IndexSnapshot current = snapshot;
+        return searchRanked(current, words, k, RankedQuery.Statistics.of(current, words));
+    }
+
+    /**
+     * Ranks the indexed files like {@link #searchRanked(String, int)}, but with statistics gathered from
+     * all shards of an index.
+     *
+     * @param words The distinct lowercased words of the query.
+     * @param k The maximum number of files to return.
+     * @param statistics The statistics of the words across all shards.
+     * @return The best files of this shard with their scores, best first.
+     */
+    List<Map.Entry<String, Double>> searchRanked(String[] words, int k, RankedQuery.Statistics statistics) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        return searchRanked(snapshot, words, k, statistics);
+    }
+
+    /**
+     * @param words The distinct lowercased words of a query.
+     * @return The statistics of the words in this index, for ranking across shards.
+     */
+    RankedQuery.Statistics rankingStatistics(String[] words) {
+        return RankedQuery.Statistics.of(snapshot, words);
+    }
+
+    private static List<Map.Entry<String, Double>> searchRanked(IndexSnapshot current, String[] words, int k,
+                                                                RankedQuery.Statistics statistics) {
+        List<Map.Entry<String, Double>> results = new ArrayList<>();
+        for (TopScoreCollector.ScoredDoc doc : new RankedQuery(words).search(current, k, statistics)) {
+            results.add(Map.entry(current.getPath(doc.docId), doc.score));
+        }
+        return results;
+    }
+
+    /**
+     * Lists the documents of a cursor with their frequencies, sorted by frequency in descending order.
+     */
+    private static List<Map.Entry<String, Integer>> collect(IndexSnapshot snapshot, PostingsCursor cursor) {
+        List<Map.Entry<String, Integer>> results = new ArrayList<>();
+        while (cursor != null && cursor.next()) {
+            results.add(Map.entry(snapshot.getPath(cursor.docId()), cursor.freq()));
+        }
+        results.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        return results;
+    }
+
+    /**
+     * Writes the whole index to a binary segment file and reopens it memory-mapped,
+     * which moves the saved term dictionary and postings off the Java heap.
+     * An index too large for one file continues in further files named after the first with ".1", ".2" and so
+     * on appended. The files are written under temporary names and then moved into place, the first one last.
+     *
+     * @param segmentPath The path of the first segment file to write.
+     * @throws IOException If the files cannot be written.
+     */
+    public void save(String segmentPath) throws IOException {
+        Path target = Paths.get(segmentPath).toAbsolutePath();
+        lock.lock();
+        try {
+            IndexSnapshot current = snapshot;
+            // The saved documents are renumbered without the deleted ones, which the postings skip anyway
+            int[] newIds = new int[documents.size()];
+            DocumentTable compacted = documents.compact(newIds);
+            List<Path> temps = IndexSegment.write(part -> temporary(partPath(target, part)), compacted, roots,
+                    current.terms(), term -> new RenumberedPostingsCursor(current.postings(term), newIds), positions,
+                    maxPartBytes);
+            // Parts left from an earlier, larger index would otherwise be loaded with this one
+            for (int part = temps.size(); Files.exists(partPath(target, part)); part++) {
+                Files.delete(partPath(target, part));
             }
+            for (int part = temps.size() - 1; part >= 0; part--) {
+                Files.move(temps.get(part), partPath(target, part), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            load(segmentPath);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The path of a part of a saved index: the first file itself for part 0.
+     */
+    private static Path partPath(Path first, int part) {
+        return part == 0 ? first : first.resolveSibling(first.getFileName() + "." + part);
+    }
+
+    /**
+     * @return The name a file is written under before it is moved into place.
+     */
+    private static Path temporary(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    /**
+     * Replaces the contents of this indexer with an index written by {@link #save(String)}.
+     * The files are memory-mapped rather than read, so loading takes time proportional to the number of documents only.
+     * Files indexed afterwards are kept in memory on top of the segments. The files may have changed since the
+     * index was saved; {@link #refresh(int)} checks them again.
+     *
+     * @param segmentPath The path of the first segment file to open; further parts are opened along with it.
+     * @throws IOException If a file cannot be read, is not a valid segment, or lacks positions this indexer records.
+     */
+    public void load(String segmentPath) throws IOException {
+        Path first = Paths.get(segmentPath);
+        List<IndexSegment> parts = new ArrayList<>();
+        for (int part = 0; part == 0 || Files.exists(partPath(first, part)); part++) {
+            IndexSegment loaded = IndexSegment.open(partPath(first, part));
+            if (positions && !loaded.hasPositions()) {
+                throw new IOException("Index segment was saved without positions: " + partPath(first, part));
+            }
+            parts.add(loaded);
+        }
+        DocumentTable loadedDocuments = new DocumentTable();
+        parts.get(0).readDocuments(loadedDocuments);
+        List<String> loadedRoots = parts.get(0).readRoots();
+        lock.lock();
+        try {
+            roots.clear();
+            roots.addAll(loadedRoots);
+            segments = parts.toArray(new IndexSegment[0]);
+            segmentFiles.values().forEach(Indexer::deleteQuietly);
+            segmentFiles.clear();
+            documents = loadedDocuments;
+            index = new ConcurrentHashMap<>();
+            sortedTerms = new ConcurrentSkipListSet<>();
+            termLog = new TermLog();
+            firstInMemoryDoc = loadedDocuments.size();
+            deletedInMemory = 0;
+            inMemoryBytes = 0;
+            inMemoryPostings = 0;
+            deletedChanged = true;
+            modified = false;
+            publish();
+        } finally {
+            lock.unlock();
         }
-        return cumulativeResults.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .collect(Collectors.toList());
     }
 
+    /**
+     * @return true if files have been indexed or removed since the index was last saved or loaded.
+     */
+    public boolean hasUnsavedChanges() {
+        return modified;
+    }
+
+    /**
+     * Returns a number that changes whenever the searchable contents of the index change, so that results
+     * computed earlier can be recognized as stale. Re-indexing files that have not changed keeps it the same.
+     *
+     * @return The generation of the index.
+     */
+    public long getGeneration() {
+        return snapshot.getGeneration();
+    }
+
+    /**
+     * @return The number of distinct terms in the index.
+     */
+    public int getTermCount() {
+        return termCounter.count(snapshot);
+    }
+
+    /**
+     * @return The number of files containing each term, by term, for suggesting completions. Files deleted
+     *         since the postings were last merged or purged are included.
+     */
+    Map<String, Integer> docFreqs() {
+        return snapshot.docFreqs();
+    }
+
+    /**
+     * @return Every term in the index.
+     */
+    Set<String> terms() {
+        return snapshot.terms();
+    }
+
+    /**
+     * @return The number of documents currently in the index.
+     */
+    public int getDocumentCount() {
+        return snapshot.liveCount();
+    }
+
+    /**
+     * @return The number of document IDs assigned, including those of deleted documents not yet compacted.
+     */
+    int getDocumentIdCount() {
+        return snapshot.docCount();
+    }
+
+    /**
+     * Estimates the heap used by the in-memory term dictionary and posting lists, as kept up to date by the writer.
+     * Postings loaded from a segment file are memory-mapped and not included.
+     *
+     * @return The estimated size of the index in bytes.
+     */
+    public long ramBytesUsed() {
+        return snapshot.inMemoryBytes();
+    }
+
+    /**
+     * @return The total size of the memory-mapped segment files in bytes, or 0 if no index was loaded or spilled.
+     */
+    public long diskBytesUsed() {
+        long bytes = 0;
+        for (IndexSegment segment : snapshot.getSegments()) {
+            bytes += segment.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Counts the postings of all terms, that is the number of distinct (term, document) pairs. Postings of
+     * deleted documents are included until they are purged.
+     *
+     * @return The number of postings in the index.
+     */
+    public long getPostingCount() {
+        return snapshot.postingCount();
+    }
 
     // These are new methods for Advanced Searches yet to be fully implemented
 
@@ -94,47 +1302,87 @@ public class Indexer {
         String[] termArray = terms.split(",");
         Set<String> words = Arrays.stream(termArray)
                 .map(String::trim)
-                .map(String::toLowerCase)
+                .map(Tokenizer::lowercase)
                 .collect(Collectors.toSet());
 
-        // Initialize a map to hold the cumulative results
-        Map<String, Integer> cumulativeResults = new HashMap<>();
-
-        // Perform a single search operation for all words in the list
-        words.forEach(word -> {
-            List<Map.Entry<String, Integer>> results = search(word);
-            // Aggregate the results for each file
-            results.forEach(entry -> cumulativeResults.merge(entry.getKey(), entry.getValue(), Integer::sum));
-        });
-
-        // Sort and return the aggregated results
-        return cumulativeResults.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .collect(Collectors.toList());
+        // Merge the posting lists of all words, summing the occurrences per file
+        List<Query> clauses = words.stream().map(TermQuery::new).collect(Collectors.toList());
+        IndexSnapshot current = snapshot;
+        return collect(current, new BooleanQuery(Collections.emptyList(), clauses, Collections.emptyList()).postings(current));
     }
 
 
     /**
      * Searches the indexed data for files matching the wildcard pattern.
+     * A '*' matches any sequence of characters; all other characters match themselves.
+     * The pattern is matched against the sorted term dictionary, so a pattern such as {@code compu*}
+     * only visits the terms starting with {@code compu}. A pattern with a shorter literal prefix, such as
+     * {@code *tion*} or {@code *ase}, is instead looked up in a {@link TrigramIndex} of the terms, and only the
+     * terms containing all of its trigrams are matched against it.
+     *
      * @param wildcardPattern The wildcard search pattern.
      * @return Sorted list of search results.
      */
     public List<Map.Entry<String, Integer>> searchWithWildcards(String wildcardPattern) {
-        String regex = wildcardPattern.replace("*", ".*").toLowerCase();
-        Pattern pattern = Pattern.compile(regex);
-        Map<String, Integer> cumulativeResults = new HashMap<>();
+        WildcardQuery query = new WildcardQuery(Tokenizer.lowercase(wildcardPattern));
+        List<Map.Entry<String, Integer>> results = new ArrayList<>();
 
-        index.keySet().forEach(word -> {
-            // Convert the word from the index to lowercase before matching
-            if (pattern.matcher(word.toLowerCase()).matches()) {
-                List<Map.Entry<String, Integer>> results = search(word);
-                results.forEach(entry -> cumulativeResults.merge(entry.getKey(), entry.getValue(), Integer::sum));
+        IndexSnapshot current = snapshot;
+        Set<String> matches = new HashSet<>();
+        String pattern = query.getPattern();
+        boolean byTrigrams = query.getPrefix().length() < TRIGRAM_PREFIX_LENGTH
+                && TrigramIndex.requiredGrams(pattern).length > 0;
+        for (IndexSegment segment : current.getSegments()) {
+            if (byTrigrams) {
+                for (int ordinal : segment.trigrams().candidates(pattern)) {
+                    String term = segment.term(ordinal);
+                    if (query.matches(term)) {
+                        matches.add(term);
+                    }
+                }
+            } else {
+                query.collectMatches(segment.terms(), matches::add);
             }
-        });
+        }
+        if (byTrigrams) {
+            TermLog log = current.getTermLog();
+            int count = current.getTermLogSize();
+            TrigramIndex trigrams = log.trigrams(count);
+            int covered = 0;
+            if (trigrams != null) {
+                covered = Math.min(trigrams.termCount(), count);
+                for (int ordinal : trigrams.candidates(pattern)) {
+                    if (ordinal < count && query.matches(log.get(ordinal))) {
+                        matches.add(log.get(ordinal));
+                    }
+                }
+            }
+            // Terms added since the trigram index was built
+            for (int ordinal = covered; ordinal < count; ordinal++) {
+                if (query.matches(log.get(ordinal))) {
+                    matches.add(log.get(ordinal));
+                }
+            }
+        } else {
+            query.collectMatches(new SortedSetTermsEnum(current.getSortedTerms()), matches::add);
+        }
+
+        // Sum the occurrences of all matching terms per document
+        int[] counts = new int[current.docCount()];
+        for (String word : matches) {
+            PostingsCursor cursor = current.postings(word);
+            while (cursor != null && cursor.next()) {
+                counts[cursor.docId()] += cursor.freq();
+            }
+        }
+        for (int docId = 0; docId < counts.length; docId++) {
+            if (counts[docId] > 0) {
+                results.add(Map.entry(current.getPath(docId), counts[docId]));
+            }
+        }
 
-        return cumulativeResults.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .collect(Collectors.toList());
+        results.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        return results;
     }
 
     public List<String> suggestCorrections(String term) {
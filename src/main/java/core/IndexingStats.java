@@ -0,0 +1,108 @@
+package core;
+
+/**
+ * The IndexingStats class records the volume and duration of a single indexing run, or the sum of several,
+ * and derives the throughput figures reported for it.
+ */
+public class IndexingStats {
+    private final int files;
+    private final int skipped;
+    private final long bytes;
+    private final long tokens;
+    private final long elapsedNanos;
+    private final int workers;
+
+    /**
+     * Constructor for IndexingStats.
+     * @param files The number of files visited.
+     * @param skipped The number of visited files that were unchanged since they were last indexed.
+     * @param bytes The number of bytes read.
+     * @param tokens The number of words in the files that were tokenized.
+     * @param elapsedNanos The wall-clock duration of the run in nanoseconds.
+     * @param workers The number of worker threads used.
+     */
+    public IndexingStats(int files, int skipped, long bytes, long tokens, long elapsedNanos, int workers) {
+        this.files = files;
+        this.skipped = skipped;
+        this.bytes = bytes;
+        this.tokens = tokens;
+        this.elapsedNanos = elapsedNanos;
+        this.workers = workers;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getTokens() {
+        return tokens;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @return The number of files visited per second of wall-clock time.
+     */
+    public double getFilesPerSecond() {
+        return elapsedNanos == 0 ? 0 : files / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * @return The number of megabytes (2^20 bytes) read per second of wall-clock time.
+     */
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (bytes / (1024.0 * 1024.0)) / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * @return The number of words tokenized per second of wall-clock time.
+     */
+    public double getTokensPerSecond() {
+        return elapsedNanos == 0 ? 0 : tokens / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Adds up two runs. The durations are summed, so the rates of the sum are averages over both runs.
+     *
+     * @param other The other run.
+     * @return The combined statistics, with the larger of the two worker counts.
+     */
+    public IndexingStats plus(IndexingStats other) {
+        return new IndexingStats(files + other.files, skipped + other.skipped, bytes + other.bytes,
+                tokens + other.tokens, elapsedNanos + other.elapsedNanos, Math.max(workers, other.workers));
+    }
+
+    /**
+     * Combines runs that took place at the same time, such as the shards of one index indexing a directory
+     * together. The volumes and workers are summed, and the duration is the longer of the two.
+     *
+     * @param other The other run.
+     * @return The combined statistics.
+     */
+    public IndexingStats alongside(IndexingStats other) {
+        return new IndexingStats(files + other.files, skipped + other.skipped, bytes + other.bytes,
+                tokens + other.tokens, Math.max(elapsedNanos, other.elapsedNanos), workers + other.workers);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Indexed %d files (%d unchanged, %.2f MB read, %d words) in %.1f ms with %d worker(s): "
+                        + "%.1f files/sec, %.2f MB/sec, %.0f words/sec",
+                files, skipped, bytes / (1024.0 * 1024.0), tokens, elapsedNanos / 1e6, workers,
+                getFilesPerSecond(), getMegabytesPerSecond(), getTokensPerSecond());
+    }
+}
@@ -0,0 +1,120 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts durations in logarithmic buckets, so percentiles can be reported without
+ * keeping every sample. Each power of two of nanoseconds is split into 8 buckets, which bounds the error of a
+ * reported percentile to an eighth of its value. Recording is lock-free and cheap enough for every search.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a duration.
+     * @param nanos The duration in nanoseconds; negative values count as 0.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        counts.incrementAndGet(bucket(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * @return The number of recorded durations.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The mean duration in milliseconds, or 0 if none were recorded.
+     */
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    /**
+     * @return The longest duration in milliseconds.
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * Estimates a percentile from the bucket counts.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper bound of the bucket holding the percentile, in milliseconds, or 0 if none were recorded.
+     */
+    public double getPercentileMillis(double percentile) {
+        long n = 0;
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        long rank = (long) Math.ceil(percentile / 100 * n);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(upperBound(i), maxNanos.get()) / 1e6;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Clears all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d searches, mean %.3f ms, p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                getCount(), getMeanMillis(), getPercentileMillis(50), getPercentileMillis(90),
+                getPercentileMillis(99), getMaxMillis());
+    }
+
+    /**
+     * Values below 8 get a bucket each; above that, the highest bit selects a group of 8 buckets and the
+     * next 3 bits select the bucket within it.
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        // The largest value whose top bits are 1, subBucket
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,85 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * The LevenshteinDistance class computes edit distances up to a threshold.
+ *
+ * Only the diagonal band of the distance matrix that can still stay within the threshold is filled, two rows
+ * at a time, and the computation stops as soon as a whole row exceeds the threshold. The row buffers are reused
+ * between calls, so an instance allocates nothing per comparison; it is therefore not safe to share between threads.
+ */
+class LevenshteinDistance {
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    private int[] previous = new int[32];
+    private int[] current = new int[32];
+
+    /**
+     * Computes the edit distance between two strings, giving up once it is known to exceed the threshold.
+     *
+     * @param a The first string.
+     * @param b The second string.
+     * @param threshold The largest distance of interest.
+     * @return The distance if it is at most the threshold, otherwise {@code threshold + 1}.
+     */
+    int compute(CharSequence a, CharSequence b, int threshold) {
+        if (a.length() > b.length()) {
+            CharSequence swap = a;
+            a = b;
+            b = swap;
+        }
+        int n = a.length();
+        int m = b.length();
+        if (m - n > threshold) {
+            return threshold + 1;
+        }
+        if (n == 0) {
+            return m;
+        }
+        // The distance never exceeds the longer length, so a wider band is never needed
+        int band = Math.min(threshold, m);
+        if (previous.length <= m) {
+            previous = new int[m + 1];
+            current = new int[m + 1];
+        }
+
+        int[] p = previous;
+        int[] d = current;
+        for (int j = 0; j <= band; j++) {
+            p[j] = j;
+        }
+        Arrays.fill(p, band + 1, m + 1, UNREACHABLE);
+
+        for (int i = 1; i <= n; i++) {
+            char c = a.charAt(i - 1);
+            int min = Math.max(1, i - band);
+            int max = Math.min(m, i + band);
+            d[0] = i <= band ? i : UNREACHABLE;
+            if (min > 1) {
+                d[min - 1] = UNREACHABLE;
+            }
+            int rowMin = d[0];
+            for (int j = min; j <= max; j++) {
+                int cost;
+                if (c == b.charAt(j - 1)) {
+                    cost = p[j - 1];
+                } else {
+                    cost = 1 + Math.min(p[j - 1], Math.min(p[j], d[j - 1]));
+                }
+                d[j] = cost;
+                rowMin = Math.min(rowMin, cost);
+            }
+            if (max < m) {
+                d[max + 1] = UNREACHABLE;
+            }
+            if (rowMin > threshold) {
+                return threshold + 1;
+            }
+            int[] swap = p;
+            p = d;
+            d = swap;
+        }
+        return p[m] <= threshold ? p[m] : threshold + 1;
+    }
+}
@@ -0,0 +1,72 @@
+package core;
+
+import java.util.BitSet;
+
+/**
+ * The LivePostingsCursor class skips the postings of deleted documents,
+ * and optionally stops at the first document added after a point in time.
+ */
+class LivePostingsCursor implements PostingsCursor {
+    private final PostingsCursor in;
+    private final BitSet deleted;
+    private final int maxDoc;
+
+    LivePostingsCursor(PostingsCursor in, BitSet deleted) {
+        this(in, deleted, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param in The postings to filter.
+     * @param deleted The deleted document IDs.
+     * @param maxDoc Postings from this document ID on are cut off.
+     */
+    LivePostingsCursor(PostingsCursor in, BitSet deleted, int maxDoc) {
+        this.in = in;
+        this.deleted = deleted;
+        this.maxDoc = maxDoc;
+    }
+
+    @Override
+    public boolean next() {
+        while (in.next()) {
+            if (in.docId() >= maxDoc) {
+                return false;
+            }
+            if (!deleted.get(in.docId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean advance(int target) {
+        if (!in.advance(target)) {
+            return false;
+        }
+        do {
+            if (in.docId() >= maxDoc) {
+                return false;
+            }
+            if (!deleted.get(in.docId())) {
+                return true;
+            }
+        } while (in.next());
+        return false;
+    }
+
+    @Override
+    public int docId() {
+        return in.docId();
+    }
+
+    @Override
+    public int freq() {
+        return in.freq();
+    }
+
+    @Override
+    public int nextPosition() {
+        return in.nextPosition();
+    }
+}
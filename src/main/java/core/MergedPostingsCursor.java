@@ -0,0 +1,81 @@
+package core;
+
+/**
+ * The MergedPostingsCursor class presents several posting cursors as one, in ascending document ID order.
+ * When more than one cursor holds the same document, their frequencies are summed and its positions
+ * are read from the first of them; the index never stores a document in more than one source.
+ */
+class MergedPostingsCursor implements PostingsCursor {
+    private final PostingsCursor[] cursors;
+    private final int[] heads;
+    private int docId = -1;
+    private int freq;
+    private int current;
+
+    MergedPostingsCursor(PostingsCursor... cursors) {
+        this.cursors = cursors;
+        this.heads = new int[cursors.length];
+        for (int i = 0; i < cursors.length; i++) {
+            heads[i] = cursors[i].next() ? cursors[i].docId() : Integer.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public boolean next() {
+        // Cursors on the current document are only moved on now, so that its positions can still be read
+        for (int i = 0; i < cursors.length; i++) {
+            if (heads[i] == docId) {
+                heads[i] = cursors[i].next() ? cursors[i].docId() : Integer.MAX_VALUE;
+            }
+        }
+        return moveToSmallestHead();
+    }
+
+    @Override
+    public boolean advance(int target) {
+        // Each source skips ahead on its own
+        for (int i = 0; i < cursors.length; i++) {
+            if (heads[i] < target) {
+                heads[i] = cursors[i].advance(target) ? cursors[i].docId() : Integer.MAX_VALUE;
+            }
+        }
+        return moveToSmallestHead();
+    }
+
+    private boolean moveToSmallestHead() {
+        int min = Integer.MAX_VALUE;
+        for (int head : heads) {
+            min = Math.min(min, head);
+        }
+        if (min == Integer.MAX_VALUE) {
+            return false;
+        }
+        docId = min;
+        freq = 0;
+        current = -1;
+        for (int i = 0; i < cursors.length; i++) {
+            if (heads[i] == min) {
+                freq += cursors[i].freq();
+                if (current < 0) {
+                    current = i;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int freq() {
+        return freq;
+    }
+
+    @Override
+    public int nextPosition() {
+        return cursors[current].nextPosition();
+    }
+}
@@ -0,0 +1,204 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * The PhraseQuery class finds documents in which a sequence of terms occurs at consecutive positions.
+ *
+ * Documents are intersected first, led by the term with the fewest postings, so the other posting lists
+ * are only advanced to documents that can still match, skipping whole blocks of postings on the way. In each document containing every term, the positions
+ * of the term that occurs least often drive the match, and the position lists of the other terms are searched
+ * by galloping (exponential then binary search), which stays cheap even for very frequent terms.
+ */
+class PhraseQuery implements Query {
+    private final String[] terms;
+
+    /**
+     * Constructor for PhraseQuery.
+     * @param terms The lowercased terms of the phrase, in order.
+     */
+    PhraseQuery(String[] terms) {
+        this.terms = terms;
+    }
+
+    /**
+     * Returns the matches of the phrase as postings: the frequency of a document is the number of times
+     * the phrase occurs in it, and its positions are the positions at which each occurrence starts.
+     *
+     * @param snapshot The index to search, which must record positions.
+     * @return A cursor over the matching documents, or null if a term of the phrase is not indexed.
+     */
+    @Override
+    public PostingsCursor postings(IndexSnapshot snapshot) {
+        PostingsCursor[] cursors = new PostingsCursor[terms.length];
+        int[] docFreqs = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            cursors[i] = snapshot.postings(terms[i]);
+            if (cursors[i] == null) {
+                return null;
+            }
+            docFreqs[i] = snapshot.docFreq(terms[i]);
+        }
+        Integer[] order = new Integer[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(docFreqs[a], docFreqs[b]));
+        PostingsCursor[] byDocFreq = new PostingsCursor[cursors.length];
+        for (int i = 0; i < order.length; i++) {
+            byDocFreq[i] = cursors[order[i]];
+        }
+        return new PhraseCursor(cursors, new ConjunctionPostingsCursor(byDocFreq));
+    }
+
+    @Override
+    public boolean needsPositions() {
+        // A phrase of one word is a plain term
+        return terms.length > 1;
+    }
+
+    @Override
+    public long cost(IndexSnapshot snapshot) {
+        long cost = Long.MAX_VALUE;
+        for (String term : terms) {
+            cost = Math.min(cost, snapshot.docFreq(term));
+        }
+        return cost;
+    }
+
+    /**
+     * Finds the first index in {@code values[from..to)} whose value is at least the target, probing
+     * 1, 2, 4, ... elements ahead before binary searching the last interval.
+     *
+     * @return The index, or {@code to} if every value is smaller.
+     */
+    static int gallop(int[] values, int from, int to, int target) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < to && values[high] < target) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static class PhraseCursor implements PostingsCursor {
+        // In phrase order
+        private final PostingsCursor[] cursors;
+        // Finds the documents containing every term; leaves the cursors on them so their positions can be read
+        private final PostingsCursor documents;
+        private final int[][] positions;
+        private final int[] counts;
+        private final int[] starts;
+        private int[] matches = new int[8];
+        private int freq;
+        private int positionsRead;
+
+        PhraseCursor(PostingsCursor[] cursors, PostingsCursor documents) {
+            this.cursors = cursors;
+            this.documents = documents;
+            this.positions = new int[cursors.length][8];
+            this.counts = new int[cursors.length];
+            this.starts = new int[cursors.length];
+        }
+
+        @Override
+        public boolean next() {
+            return documents.next() && findMatch();
+        }
+
+        @Override
+        public boolean advance(int target) {
+            // The conjunction skips its cursors ahead to the target
+            return documents.advance(target) && findMatch();
+        }
+
+        /**
+         * Moves on from the document the cursors are on to the first one, itself included, containing the phrase.
+         */
+        private boolean findMatch() {
+            do {
+                freq = matchPositions();
+                if (freq > 0) {
+                    positionsRead = 0;
+                    return true;
+                }
+            } while (documents.next());
+            return false;
+        }
+
+        /**
+         * Counts the occurrences of the phrase in the document all cursors are on, recording where each one starts.
+         */
+        private int matchPositions() {
+            int driver = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                int count = cursors[i].freq();
+                if (positions[i].length < count) {
+                    positions[i] = new int[Math.max(count, positions[i].length * 2)];
+                }
+                for (int j = 0; j < count; j++) {
+                    positions[i][j] = cursors[i].nextPosition();
+                }
+                counts[i] = count;
+                starts[i] = 0;
+                if (count < counts[driver]) {
+                    driver = i;
+                }
+            }
+
+            int found = 0;
+            for (int j = 0; j < counts[driver]; j++) {
+                int start = positions[driver][j] - driver;
+                if (start < 0) {
+                    continue;
+                }
+                boolean match = true;
+                for (int i = 0; i < cursors.length && match; i++) {
+                    if (i == driver) {
+                        continue;
+                    }
+                    starts[i] = gallop(positions[i], starts[i], counts[i], start + i);
+                    if (starts[i] == counts[i]) {
+                        // Term i does not occur late enough for any further match
+                        return found;
+                    }
+                    match = positions[i][starts[i]] == start + i;
+                }
+                if (match) {
+                    if (found == matches.length) {
+                        matches = Arrays.copyOf(matches, found * 2);
+                    }
+                    matches[found++] = start;
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public int docId() {
+            return documents.docId();
+        }
+
+        @Override
+        public int freq() {
+            return freq;
+        }
+
+        @Override
+        public int nextPosition() {
+            return matches[positionsRead++];
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package core;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * The PostingList class stores the documents containing a single term as a compressed byte sequence.
+ * Each posting is a (docId, frequency) pair; document IDs are kept in ascending order and written as
+ * the gap to the previous ID, and both numbers are variable-length encoded, so most postings take 2-3 bytes.
+ * A list may also record the positions of the term in each document: they follow the frequency as the byte length
+ * of the block and the gaps between consecutive positions, so readers that only need documents can skip them.
+ * Every {@link #SKIP_INTERVAL} postings, the list also notes the last document ID so far and the byte offset after
+ * it, so that a cursor looking for a later document can jump there instead of decoding every posting on the way.
+ *
+ * A list has a single writer but may be read by any number of threads while it grows: a posting becomes
+ * visible only once it is completely written, and the bytes a reader can see are never changed afterwards.
+ */
+class PostingList {
+    static final int SKIP_INTERVAL = 128;
+
+    private final boolean positions;
+    // The array is only replaced by a longer copy, and length is published after the bytes below it are written
+    private volatile byte[] data = new byte[8];
+    private volatile int length;
+    // Pairs of (document ID, byte offset after its posting), one per SKIP_INTERVAL postings; an entry is added
+    // after the posting it points past is published
+    private volatile int[] skips = new int[0];
+    private volatile int skipCount;
+    private int size;
+    private int lastDocId = -1;
+
+    PostingList() {
+        this(false);
+    }
+
+    /**
+     * @param positions Whether the list records the positions of the term in each document.
+     */
+    PostingList(boolean positions) {
+        this.positions = positions;
+    }
+
+    /**
+     * Appends the occurrences of the term in a document, to a list that does not record positions.
+     *
+     * @param docId The ID of the document, which must be greater than any ID already in the list.
+     * @param freq The number of occurrences of the term in the document.
+     */
+    void add(int docId, int freq) {
+        if (positions) {
+            throw new IllegalStateException("Positions are required");
+        }
+        add(docId, freq, null);
+    }
+
+    /**
+     * Appends the occurrences of the term in a document.
+     *
+     * @param docId The ID of the document, which must be greater than any ID already in the list.
+     * @param freq The number of occurrences of the term in the document.
+     * @param termPositions The positions of the occurrences in ascending order, if the list records positions; ignored otherwise.
+     */
+    void add(int docId, int freq, int[] termPositions) {
+        if (docId <= lastDocId) {
+            throw new IllegalArgumentException("Document " + docId + " added after document " + lastDocId);
+        }
+        ensureCapacity(maxEncodedLength(freq, positions));
+        length = encode(data, length, docId - lastDocId - 1, freq, positions ? termPositions : null);
+        lastDocId = docId;
+        if (++size % SKIP_INTERVAL == 0) {
+            if (2 * skipCount == skips.length) {
+                skips = Arrays.copyOf(skips, Math.max(8, skips.length * 2));
+            }
+            skips[2 * skipCount] = docId;
+            skips[2 * skipCount + 1] = length;
+            skipCount++;
+        }
+    }
+
+    /**
+     * @return The number of documents in this list (the document frequency of the term).
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return A cursor positioned before the first posting.
+     */
+    PostingsCursor cursor() {
+        // Skip entries read first point within the length read next
+        int entries = skipCount;
+        IntBuffer skipData = IntBuffer.wrap(skips, 0, 2 * entries);
+        // Read the length before the array: any array read after it holds at least that many complete bytes
+        int end = length;
+        return new EncodedPostingsCursor(ByteBuffer.wrap(data, 0, end), positions, skipData);
+    }
+
+    /**
+     * @return Whether the list records the positions of the term in each document.
+     */
+    boolean hasPositions() {
+        return positions;
+    }
+
+    /**
+     * Copies every posting of a cursor into a new list.
+     * @param cursor The cursor to drain.
+     * @param positions Whether to copy positions; the cursor must then provide them.
+     * @return The new list.
+     */
+    static PostingList copyOf(PostingsCursor cursor, boolean positions) {
+        PostingList postings = new PostingList(positions);
+        int[] termPositions = new int[16];
+        while (cursor.next()) {
+            int freq = cursor.freq();
+            if (positions) {
+                if (freq > termPositions.length) {
+                    termPositions = new int[Math.max(freq, termPositions.length * 2)];
+                }
+                for (int i = 0; i < freq; i++) {
+                    termPositions[i] = cursor.nextPosition();
+                }
+            }
+            postings.add(cursor.docId(), freq, termPositions);
+        }
+        return postings;
+    }
+
+    /**
+     * @return The size of the encoded postings in bytes.
+     */
+    int byteLength() {
+        return length;
+    }
+
+    /**
+     * Writes the encoded postings, in the format read by {@link EncodedPostingsCursor}.
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        int end = length;
+        out.write(data, 0, end);
+    }
+
+    /**
+     * @return An estimate of the heap used by this list, including object headers.
+     */
+    long ramBytesUsed() {
+        return 32 + 16 + data.length + 16 + 4L * skips.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+        }
+    }
+
+    /**
+     * @return The most bytes {@link #encode} can take for a posting with the given frequency.
+     */
+    static int maxEncodedLength(int freq, boolean positions) {
+        return positions ? 15 + 5 * freq : 10;
+    }
+
+    /**
+     * Encodes one posting.
+     *
+     * @param bytes The array to write to, with room for {@link #maxEncodedLength} bytes after the offset.
+     * @param offset The offset to write at.
+     * @param gap The difference to the previous document ID minus one, or the document ID for the first posting.
+     * @param freq The number of occurrences of the term in the document.
+     * @param termPositions The positions of the occurrences in ascending order, or null to write no positions.
+     * @return The offset after the posting.
+     */
+    static int encode(byte[] bytes, int offset, int gap, int freq, int[] termPositions) {
+        int end = writeVInt(bytes, offset, gap);
+        end = writeVInt(bytes, end, freq);
+        if (termPositions != null) {
+            int positionsLength = 0;
+            for (int i = 0, previous = 0; i < freq; previous = termPositions[i++]) {
+                positionsLength += vIntLength(termPositions[i] - previous);
+            }
+            end = writeVInt(bytes, end, positionsLength);
+            for (int i = 0, previous = 0; i < freq; previous = termPositions[i++]) {
+                end = writeVInt(bytes, end, termPositions[i] - previous);
+            }
+        }
+        return end;
+    }
+
+    private static int vIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVInt(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+}
@@ -0,0 +1,47 @@
+package core;
+
+/**
+ * A PostingsCursor iterates the postings of a term in ascending document ID order.
+ * If the index records positions, the positions of the term within the current document can be read as well.
+ */
+interface PostingsCursor {
+    /**
+     * Advances to the next posting.
+     * @return true if a posting was read, false if the postings are exhausted.
+     */
+    boolean next();
+
+    /**
+     * @return The document ID of the current posting.
+     */
+    int docId();
+
+    /**
+     * @return The number of occurrences of the term in the current document.
+     */
+    int freq();
+
+    /**
+     * Reads the next position of the term in the current document, in ascending order.
+     * May be called up to {@link #freq()} times per document.
+     *
+     * @return The position, counted in tokens from the start of the document.
+     * @throws IllegalStateException If the postings do not record positions.
+     */
+    int nextPosition();
+
+    /**
+     * Advances to the first posting whose document ID is at least the target.
+     *
+     * @param target The document ID to advance to; should be greater than the current one.
+     * @return true if such a posting exists, false if the postings are exhausted.
+     */
+    default boolean advance(int target) {
+        while (next()) {
+            if (docId() >= target) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,25 @@
+package core;
+
+/**
+ * A Query describes a set of documents, each with a frequency, that can be read from an index snapshot as postings.
+ */
+interface Query {
+    /**
+     * @param snapshot The index to search.
+     * @return A cursor over the matching documents in ascending ID order, or null if no document can match.
+     */
+    PostingsCursor postings(IndexSnapshot snapshot);
+
+    /**
+     * @param snapshot The index to search.
+     * @return An estimate of the number of matching documents, used to lead conjunctions with their rarest clause.
+     */
+    long cost(IndexSnapshot snapshot);
+
+    /**
+     * @return Whether the query, or any query it combines, matches terms by their positions.
+     */
+    default boolean needsPositions() {
+        return false;
+    }
+}
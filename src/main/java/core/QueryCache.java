@@ -0,0 +1,159 @@
+package core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The QueryCache class remembers the results of recent searches so that repeating a search does not
+ * walk the index again.
+ *
+ * Entries are keyed by search mode and normalized query, and evicted least recently used first once either
+ * the number of entries or the total number of cached results exceeds its limit. Every entry belongs to an
+ * index generation; as soon as the index reports a new one, all entries are dropped, so results are never
+ * served from before a change to the index. The methods are synchronized, but results are computed outside
+ * the lock so that concurrent searches do not wait for each other.
+ */
+public class QueryCache {
+    private final LongSupplier generationSource;
+    private final int maxEntries;
+    private final long maxResults;
+    // Access-ordered: the least recently used entry comes first
+    private final LinkedHashMap<String, List<?>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+    private long cachedResults;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor for QueryCache.
+     *
+     * @param generationSource Supplies the current generation of the index.
+     * @param maxEntries The maximum number of cached searches.
+     * @param maxResults The maximum number of results held by all cached searches together; each search
+     *                   counts as one more than its number of results.
+     */
+    public QueryCache(LongSupplier generationSource, int maxEntries, long maxResults) {
+        if (maxEntries < 0 || maxResults < 0) {
+            throw new IllegalArgumentException("Cache limits must not be negative");
+        }
+        this.generationSource = generationSource;
+        this.maxEntries = maxEntries;
+        this.maxResults = maxResults;
+        this.generation = generationSource.getAsLong();
+    }
+
+    /**
+     * Returns the cached results of a search, computing and caching them if they are missing.
+     *
+     * @param mode The search mode, which separates searches with the same query text.
+     * @param key The normalized query; queries with the same key must have the same results.
+     * @param compute Computes the results on a miss.
+     * @param <T> The type of the results.
+     * @return The results, which are shared with other callers and cannot be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(String mode, String key, Supplier<List<T>> compute) {
+        String cacheKey = mode + '\u0000' + key;
+        long computedGeneration;
+        synchronized (this) {
+            computedGeneration = generationSource.getAsLong();
+            checkGeneration(computedGeneration);
+            List<T> cached = (List<T>) entries.get(cacheKey);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        List<T> results = Collections.unmodifiableList(compute.get());
+        synchronized (this) {
+            // A change to the index during the search may or may not be reflected in the results
+            if (generationSource.getAsLong() == computedGeneration) {
+                checkGeneration(computedGeneration);
+                put(cacheKey, results);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cachedResults = 0;
+    }
+
+    /**
+     * @return The number of cached searches.
+     */
+    public synchronized int size() {
+        checkGeneration(generationSource.getAsLong());
+        return entries.size();
+    }
+
+    /**
+     * @return The number of searches answered from the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of searches that had to be computed.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The number of searches dropped to stay within the limits; invalidations are not counted.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return The fraction of searches answered from the cache, or 0 if there were none.
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private void checkGeneration(long current) {
+        if (current != generation) {
+            clear();
+            generation = current;
+        }
+    }
+
+    private void put(String cacheKey, List<?> results) {
+        long weight = weight(results);
+        if (weight > maxResults || maxEntries == 0) {
+            return;
+        }
+        List<?> previous = entries.put(cacheKey, results);
+        if (previous != null) {
+            cachedResults -= weight(previous);
+        }
+        cachedResults += weight;
+        var iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || cachedResults > maxResults) {
+            Map.Entry<String, List<?>> eldest = iterator.next();
+            cachedResults -= weight(eldest.getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static long weight(List<?> results) {
+        return results.size() + 1L;
+    }
+}
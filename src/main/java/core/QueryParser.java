@@ -0,0 +1,196 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The QueryParser class parses boolean queries such as {@code apple AND (banana OR "cherry pie") NOT date}.
+ *
+ * Grammar, from lowest to highest precedence:
+ * <pre>
+ *   query   := and (OR and)*
+ *   and     := unary (AND? unary)*       adjacent clauses are ANDed
+ *   unary   := NOT* primary
+ *   primary := '(' query ')' | word | '"' words '"'
+ * </pre>
+ * Operators must be written in capitals; in any other case they are searched as words. Words are extracted the
+ * same way as from indexed files and lowercased, so other punctuation is ignored. A quoted phrase needs an index
+ * that records positions.
+ */
+class QueryParser {
+    private enum Kind { WORD, PHRASE, AND, OR, NOT, OPEN, CLOSE }
+
+    private static class Token {
+        final Kind kind;
+        final String text;
+
+        Token(Kind kind, String text) {
+            this.kind = kind;
+            this.text = text;
+        }
+    }
+
+    private final List<Token> tokens;
+    private int next;
+
+    private QueryParser(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Parses a boolean query.
+     *
+     * @param text The query text.
+     * @return The parsed query.
+     * @throws IllegalArgumentException If the query is empty or malformed.
+     */
+    static Query parse(String text) {
+        QueryParser parser = new QueryParser(tokenize(text));
+        if (parser.tokens.isEmpty()) {
+            throw new IllegalArgumentException("Empty query");
+        }
+        Query query = parser.parseOr();
+        if (parser.next < parser.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.tokens.get(parser.next).text + "'");
+        }
+        return query;
+    }
+
+    /**
+     * Splits text into lowercased words, using the same word characters as the indexer.
+     * @param text The text to split.
+     * @return The words in order.
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            if (Tokenizer.isWordChar(text.charAt(i))) {
+                int start = i;
+                while (i < text.length() && Tokenizer.isWordChar(text.charAt(i))) {
+                    i++;
+                }
+                words.add(Tokenizer.lowercase(text.substring(start, i)));
+            } else {
+                i++;
+            }
+        }
+        return words;
+    }
+
+    private Query parseOr() {
+        List<Query> clauses = new ArrayList<>();
+        clauses.add(parseAnd());
+        while (accept(Kind.OR)) {
+            clauses.add(parseAnd());
+        }
+        return clauses.size() == 1 ? clauses.get(0) : new BooleanQuery(Collections.emptyList(), clauses, Collections.emptyList());
+    }
+
+    private Query parseAnd() {
+        List<Query> required = new ArrayList<>();
+        List<Query> excluded = new ArrayList<>();
+        parseUnary(required, excluded);
+        while (accept(Kind.AND) || startsClause()) {
+            parseUnary(required, excluded);
+        }
+        if (required.size() == 1 && excluded.isEmpty()) {
+            return required.get(0);
+        }
+        return new BooleanQuery(required, Collections.emptyList(), excluded);
+    }
+
+    private void parseUnary(List<Query> required, List<Query> excluded) {
+        boolean negated = false;
+        while (accept(Kind.NOT)) {
+            negated = !negated;
+        }
+        (negated ? excluded : required).add(parsePrimary());
+    }
+
+    private Query parsePrimary() {
+        if (next == tokens.size()) {
+            throw new IllegalArgumentException("Unexpected end of query");
+        }
+        Token token = tokens.get(next++);
+        switch (token.kind) {
+            case OPEN:
+                Query query = parseOr();
+                if (!accept(Kind.CLOSE)) {
+                    throw new IllegalArgumentException("Missing ')'");
+                }
+                return query;
+            case WORD:
+                return new TermQuery(Tokenizer.lowercase(token.text));
+            case PHRASE:
+                List<String> words = words(token.text);
+                if (words.isEmpty()) {
+                    throw new IllegalArgumentException("Empty phrase");
+                }
+                return words.size() == 1 ? new TermQuery(words.get(0)) : new PhraseQuery(words.toArray(new String[0]));
+            default:
+                throw new IllegalArgumentException("Unexpected '" + token.text + "'");
+        }
+    }
+
+    private boolean startsClause() {
+        if (next == tokens.size()) {
+            return false;
+        }
+        Kind kind = tokens.get(next).kind;
+        return kind == Kind.WORD || kind == Kind.PHRASE || kind == Kind.NOT || kind == Kind.OPEN;
+    }
+
+    private boolean accept(Kind kind) {
+        if (next < tokens.size() && tokens.get(next).kind == kind) {
+            next++;
+            return true;
+        }
+        return false;
+    }
+
+    private static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '(') {
+                tokens.add(new Token(Kind.OPEN, "("));
+                i++;
+            } else if (c == ')') {
+                tokens.add(new Token(Kind.CLOSE, ")"));
+                i++;
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = text.length();
+                }
+                tokens.add(new Token(Kind.PHRASE, text.substring(i + 1, end)));
+                i = end + 1;
+            } else if (Tokenizer.isWordChar(c)) {
+                int start = i;
+                while (i < text.length() && Tokenizer.isWordChar(text.charAt(i))) {
+                    i++;
+                }
+                String word = text.substring(start, i);
+                switch (word) {
+                    case "AND":
+                        tokens.add(new Token(Kind.AND, word));
+                        break;
+                    case "OR":
+                        tokens.add(new Token(Kind.OR, word));
+                        break;
+                    case "NOT":
+                        tokens.add(new Token(Kind.NOT, word));
+                        break;
+                    default:
+                        tokens.add(new Token(Kind.WORD, word));
+                }
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,181 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The RankedQuery class finds the documents most relevant to a set of terms using Okapi BM25.
+ *
+ * A document matches if it contains any of the terms. Each term it contains adds
+ * {@code idf * tf * (k1 + 1) / (tf + k1 * (1 - b + b * length / averageLength))} to its score, so rare terms
+ * weigh more than common ones, repeated occurrences count with diminishing returns, and long files do not win
+ * merely by being long.
+ *
+ * Only the best k documents are kept, and the MaxScore algorithm avoids scoring most of the others: every term's
+ * score is bounded by {@code idf * (k1 + 1)}, and once the k-th best score exceeds the combined bound of the
+ * lowest-bounded terms, documents containing only those terms are skipped and those terms are only looked up
+ * for documents that can still make the top k.
+ */
+class RankedQuery {
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private final String[] terms;
+
+    /**
+     * Constructor for RankedQuery.
+     * @param terms The distinct lowercased terms to rank by.
+     */
+    RankedQuery(String[] terms) {
+        this.terms = terms;
+    }
+
+    /**
+     * Finds the best-scoring documents.
+     *
+     * @param snapshot The index to search.
+     * @param k The number of documents to return; must be positive.
+     * @return Up to k documents with their scores, best first; ties are broken by ascending document ID.
+     */
+    List<TopScoreCollector.ScoredDoc> search(IndexSnapshot snapshot, int k) {
+        return search(snapshot, k, Statistics.of(snapshot, terms));
+    }
+
+    /**
+     * Finds the best-scoring documents, scoring with the given statistics instead of those of the snapshot.
+     *
+     * @param snapshot The index to search.
+     * @param k The number of documents to return; must be positive.
+     * @param statistics The statistics of the terms of this query, in the same order.
+     * @return Up to k documents with their scores, best first; ties are broken by ascending document ID.
+     */
+    List<TopScoreCollector.ScoredDoc> search(IndexSnapshot snapshot, int k, Statistics statistics) {
+        TopScoreCollector collector = new TopScoreCollector(k);
+        int documents = statistics.documents;
+        double averageLength = Math.max(statistics.averageLength(), 1);
+
+        List<PostingsCursor> cursorList = new ArrayList<>();
+        List<double[]> weights = new ArrayList<>();
+        for (int t = 0; t < terms.length; t++) {
+            PostingsCursor cursor = snapshot.postings(terms[t]);
+            if (cursor != null && cursor.next()) {
+                // The document frequency may include deleted documents
+                int docFreq = Math.min(statistics.docFreqs[t], documents);
+                double idf = Math.log(1 + (documents - docFreq + 0.5) / (docFreq + 0.5));
+                cursorList.add(cursor);
+                weights.add(new double[] {idf, idf * (K1 + 1)});
+            }
+        }
+        int n = cursorList.size();
+        if (n == 0) {
+            return collector.results();
+        }
+
+        // Order the terms by ascending score bound
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(weights.get(a)[1], weights.get(b)[1]));
+        PostingsCursor[] cursors = new PostingsCursor[n];
+        double[] idfs = new double[n];
+        // boundsUpTo[i] is the highest score terms 0..i can contribute together
+        double[] boundsUpTo = new double[n];
+        int[] docs = new int[n];
+        for (int i = 0; i < n; i++) {
+            cursors[i] = cursorList.get(order[i]);
+            idfs[i] = weights.get(order[i])[0];
+            boundsUpTo[i] = weights.get(order[i])[1] + (i > 0 ? boundsUpTo[i - 1] : 0);
+            docs[i] = cursors[i].docId();
+        }
+
+        // Terms below firstEssential cannot get a document into the top k on their own
+        int firstEssential = 0;
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < n; i++) {
+                doc = Math.min(doc, docs[i]);
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+            double norm = K1 * (1 - B + B * snapshot.getLength(doc) / averageLength);
+            double score = 0;
+            for (int i = firstEssential; i < n; i++) {
+                if (docs[i] == doc) {
+                    score += termScore(idfs[i], cursors[i].freq(), norm);
+                    docs[i] = cursors[i].next() ? cursors[i].docId() : Integer.MAX_VALUE;
+                }
+            }
+            double threshold = collector.threshold();
+            for (int i = firstEssential - 1; i >= 0 && score + boundsUpTo[i] > threshold; i--) {
+                if (docs[i] < doc) {
+                    docs[i] = cursors[i].advance(doc) ? cursors[i].docId() : Integer.MAX_VALUE;
+                }
+                if (docs[i] == doc) {
+                    score += termScore(idfs[i], cursors[i].freq(), norm);
+                }
+            }
+            collector.collect(doc, score);
+            threshold = collector.threshold();
+            while (firstEssential < n && boundsUpTo[firstEssential] <= threshold) {
+                firstEssential++;
+            }
+        }
+        return collector.results();
+    }
+
+    private static double termScore(double idf, int freq, double norm) {
+        return idf * freq * (K1 + 1) / (freq + norm);
+    }
+
+    /**
+     * The collection statistics that scores are computed from. When the documents are split between several
+     * indexes, each is searched with the statistics of all of them combined, so that every document gets the
+     * score it would get in a single index.
+     */
+    static class Statistics {
+        private final int documents;
+        private final long totalLength;
+        // The document frequency of each term, in query order
+        private final int[] docFreqs;
+
+        private Statistics(int documents, long totalLength, int[] docFreqs) {
+            this.documents = documents;
+            this.totalLength = totalLength;
+            this.docFreqs = docFreqs;
+        }
+
+        /**
+         * Reads the statistics of the terms from a snapshot.
+         * @param snapshot The index to read.
+         * @param terms The terms of the query.
+         * @return The statistics.
+         */
+        static Statistics of(IndexSnapshot snapshot, String[] terms) {
+            int[] docFreqs = new int[terms.length];
+            for (int t = 0; t < terms.length; t++) {
+                docFreqs[t] = snapshot.docFreq(terms[t]);
+            }
+            return new Statistics(snapshot.liveCount(), snapshot.liveLength(), docFreqs);
+        }
+
+        /**
+         * Combines the statistics of two indexes that hold different documents.
+         * @param other The statistics of the same terms in the other index.
+         * @return The statistics of both indexes together.
+         */
+        Statistics plus(Statistics other) {
+            int[] combined = new int[docFreqs.length];
+            for (int t = 0; t < combined.length; t++) {
+                combined[t] = docFreqs[t] + other.docFreqs[t];
+            }
+            return new Statistics(documents + other.documents, totalLength + other.totalLength, combined);
+        }
+
+        private double averageLength() {
+            return documents == 0 ? 0 : (double) totalLength / documents;
+        }
+    }
+}
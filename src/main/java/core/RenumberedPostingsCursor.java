@@ -0,0 +1,40 @@
+package core;
+
+/**
+ * The RenumberedPostingsCursor class gives the postings of another cursor new document IDs, for writing a segment
+ * whose documents were renumbered to close the gaps left by deleted ones. The new IDs must be in the same order
+ * as the old ones, so the postings stay sorted.
+ */
+class RenumberedPostingsCursor implements PostingsCursor {
+    private final PostingsCursor in;
+    private final int[] newIds;
+
+    /**
+     * @param in The postings to renumber, which must not include deleted documents.
+     * @param newIds The new ID of each document, by old ID.
+     */
+    RenumberedPostingsCursor(PostingsCursor in, int[] newIds) {
+        this.in = in;
+        this.newIds = newIds;
+    }
+
+    @Override
+    public boolean next() {
+        return in.next();
+    }
+
+    @Override
+    public int docId() {
+        return newIds[in.docId()];
+    }
+
+    @Override
+    public int freq() {
+        return in.freq();
+    }
+
+    @Override
+    public int nextPosition() {
+        return in.nextPosition();
+    }
+}
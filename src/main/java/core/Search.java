@@ -1,30 +1,268 @@
 package core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
-public class Search {
-    private Indexer indexer;
+// Results are served from a cache that is cleared whenever the index changes; they are shared and cannot be modified.
+// The index may be split into shards, each an Indexer holding a share of the files: every search then runs on all
+// shards in parallel and their results are merged, so a search over a large index uses several cores. A Search over
+// several shards runs them on threads of its own, which close() stops.
+public class Search implements AutoCloseable {
+    private static final int CACHED_QUERIES = 256;
+    private static final long CACHED_RESULTS = 100_000;
+    private static final int COMPLETIONS = 10;
+
+    private final Indexer[] shards;
+    // Runs the searches of all shards but the first, which runs on the calling thread; null for a single shard
+    private final ExecutorService shardExecutor;
+    private final QueryCache cache;
+    private final SearchMetrics metrics;
+    private final CompletionService completions;
 
     public Search(Indexer indexer) {
-        this.indexer = indexer;
+        this(List.of(indexer));
+    }
+
+    public Search(Indexer indexer, QueryCache cache) {
+        this(List.of(indexer), cache);
+    }
+
+    // Splits the files between the indexers, which must not have indexed any files yet
+    public Search(List<Indexer> shards) {
+        this(shards, new QueryCache(() -> generation(shards), CACHED_QUERIES, CACHED_RESULTS));
+    }
+
+    public Search(List<Indexer> shards, QueryCache cache) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        this.shards = shards.toArray(new Indexer[0]);
+        if (this.shards.length > 1) {
+            // Files already indexed would stay in a shard they may not belong to, and be found twice if indexed again
+            for (int i = 0; i < this.shards.length; i++) {
+                if (this.shards[i].getDocumentCount() > 0) {
+                    throw new IllegalArgumentException("Shard " + i + " already holds documents; shards must be empty");
+                }
+            }
+            for (int i = 0; i < this.shards.length; i++) {
+                this.shards[i].setShard(i, this.shards.length);
+            }
+        }
+        this.shardExecutor = this.shards.length == 1 ? null : Executors.newFixedThreadPool(this.shards.length - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cache = cache;
+        this.metrics = new SearchMetrics(shards, cache);
+        this.completions = new CompletionService(shards, COMPLETIONS);
+    }
+
+    // Changes whenever any shard changes, since each shard's generation only grows
+    static long generation(List<Indexer> shards) {
+        long generation = 0;
+        for (Indexer shard : shards) {
+            generation += shard.getGeneration();
+        }
+        return generation;
+    }
+
+    // Stops the threads searching the shards; searches must not be started afterwards. The shards stay open.
+    @Override
+    public void close() {
+        if (shardExecutor != null) {
+            shardExecutor.shutdown();
+        }
+    }
+
+    public QueryCache getQueryCache() {
+        return cache;
+    }
+
+    // Indexing, latency, cache and index size figures; latencies include searches answered from the cache
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    public List<Indexer> getShards() {
+        return List.of(shards);
+    }
+
+    private <T> List<T> timed(String mode, Supplier<List<T>> search) {
+        long start = System.nanoTime();
+        try {
+            return search.get();
+        } finally {
+            metrics.latency(mode).record(System.nanoTime() - start);
+        }
     }
 
+    // Runs a search on every shard at once and returns the outcomes in shard order
+    private <T> List<T> onAllShards(Function<Indexer, T> task) {
+        return onAllShards(task, shardExecutor);
+    }
+
+    // Runs a task on every shard at once, all but the first on the executor, and returns the outcomes in shard order
+    private <T> List<T> onAllShards(Function<Indexer, T> task, ExecutorService executor) {
+        if (shards.length == 1) {
+            return List.of(task.apply(shards[0]));
+        }
+        List<Future<T>> futures = new ArrayList<>();
+        try {
+            for (int i = 1; i < shards.length; i++) {
+                Indexer shard = shards[i];
+                futures.add(executor.submit(() -> task.apply(shard)));
+            }
+            List<T> outcomes = new ArrayList<>();
+            outcomes.add(task.apply(shards[0]));
+            for (Future<T> future : futures) {
+                outcomes.add(future.get());
+            }
+            return outcomes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            // Shards fail the same way the search would fail on a single index, e.g. on a malformed query
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    // Merges results sorted by descending value into one list sorted the same way, keeping at most k entries.
+    // Equal values keep the order of their shards.
+    static <V extends Comparable<V>> List<Map.Entry<String, V>> mergeTopK(List<List<Map.Entry<String, V>>> results, int k) {
+        if (results.size() == 1) {
+            List<Map.Entry<String, V>> only = results.get(0);
+            return only.size() <= k ? only : new ArrayList<>(only.subList(0, k));
+        }
+        int[] next = new int[results.size()];
+        // The shard whose next entry has the highest value comes first
+        PriorityQueue<Integer> heads = new PriorityQueue<>((a, b) -> {
+            int cmp = results.get(b).get(next[b]).getValue().compareTo(results.get(a).get(next[a]).getValue());
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        });
+        int total = 0;
+        for (int i = 0; i < results.size(); i++) {
+            total += results.get(i).size();
+            if (!results.get(i).isEmpty()) {
+                heads.add(i);
+            }
+        }
+        List<Map.Entry<String, V>> merged = new ArrayList<>(Math.min(total, k));
+        while (merged.size() < k && !heads.isEmpty()) {
+            int shard = heads.poll();
+            merged.add(results.get(shard).get(next[shard]++));
+            if (next[shard] < results.get(shard).size()) {
+                heads.add(shard);
+            }
+        }
+        return merged;
+    }
+
+    // Runs a search that returns every matching file on all shards and merges their results
+    private List<Map.Entry<String, Integer>> searchAllShards(Function<Indexer, List<Map.Entry<String, Integer>>> search) {
+        return mergeTopK(onAllShards(search), Integer.MAX_VALUE);
+    }
+
+    // Exact search: several words must appear next to each other, in order. A shard that does not record positions
+    // cannot match phrases, so it finds the files containing all of the words instead.
     public List<Map.Entry<String, Integer>> performSearch(String term) {
-        return indexer.search(term);
+        String words = String.join(" ", QueryParser.words(term));
+        return timed("exact", () -> cache.get("exact", words, () -> searchAllShards(shard ->
+                shard.recordsPositions() || words.indexOf(' ') < 0
+                        ? shard.searchPhrase(term) : shard.searchBoolean(words))));
     }
 
     public void indexDirectory(String directoryPath) {
-        indexer.indexDirectory(directoryPath);
+        indexDirectory(directoryPath, 1);
+    }
+
+    // Each shard walks the directory and indexes its own files, all shards at the same time; the worker threads
+    // are shared out between them. Indexing runs on its own threads, so searches meanwhile do not wait for it.
+    public void indexDirectory(String directoryPath, int workers) {
+        if (shards.length == 1) {
+            shards[0].indexDirectory(directoryPath, workers);
+            return;
+        }
+        int workersPerShard = Math.max(1, workers / shards.length);
+        ExecutorService executor = Executors.newFixedThreadPool(shards.length - 1);
+        try {
+            onAllShards(shard -> {
+                shard.indexDirectory(directoryPath, workersPerShard);
+                return true;
+            }, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public boolean removeFile(String filePath) {
+        boolean removed = false;
+        for (Indexer shard : shards) {
+            removed |= shard.removeFile(filePath);
+        }
+        return removed;
     }
 
     // New method for comma-separated words search
     public List<Map.Entry<String, Integer>> performCommaSeparatedSearch(String terms) {
-        return indexer.searchCommaSeparatedWords(terms);
+        return timed("comma", () -> {
+            String key = Arrays.stream(terms.split(","))
+                    .map(word -> Tokenizer.lowercase(word.trim()))
+                    .collect(Collectors.toCollection(TreeSet::new))
+                    .stream().collect(Collectors.joining(","));
+            return cache.get("comma", key, () -> searchAllShards(shard -> shard.searchCommaSeparatedWords(terms)));
+        });
+    }
+
+    // Boolean search: words combined with AND, OR, NOT and parentheses
+    public List<Map.Entry<String, Integer>> performBooleanSearch(String query) {
+        return timed("boolean", () -> cache.get("boolean", query.trim().replaceAll("\\s+", " "),
+                () -> searchAllShards(shard -> shard.searchBoolean(query))));
+    }
+
+    // Relevance-ranked search: the k files that best match the words, scored with BM25.
+    // With several shards, the word statistics of all shards are gathered first so that scores match a single index.
+    public List<Map.Entry<String, Double>> performRankedSearch(String query, int k) {
+        return timed("ranked", () -> {
+            String[] words = new LinkedHashSet<>(QueryParser.words(query)).toArray(new String[0]);
+            String key = k + ":" + String.join(" ", words);
+            return cache.get("ranked", key, () -> {
+                if (shards.length == 1) {
+                    return shards[0].searchRanked(query, k);
+                }
+                RankedQuery.Statistics statistics = onAllShards(shard -> shard.rankingStatistics(words)).stream()
+                        .reduce(RankedQuery.Statistics::plus).get();
+                return mergeTopK(onAllShards(shard -> shard.searchRanked(words, k, statistics)), k);
+            });
+        });
+    }
+
+    // Search-as-you-type: the indexed words starting with a prefix, the words found in most files first
+    public List<String> complete(String prefix) {
+        return timed("complete", () -> completions.complete(prefix));
     }
 
     // New method for wildcard search
     public List<Map.Entry<String, Integer>> performWildcardSearch(String pattern) {
-        return indexer.searchWithWildcards(pattern);
+        return timed("wildcard", () -> cache.get("wildcard", Tokenizer.lowercase(pattern),
+                () -> searchAllShards(shard -> shard.searchWithWildcards(pattern))));
     }
 }
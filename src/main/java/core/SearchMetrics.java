@@ -0,0 +1,260 @@
+package core;
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.management.ObjectName;
+
+/**
+ * The SearchMetrics class collects what is needed to see where time goes while the application runs:
+ * indexing volume and throughput, search latency per search mode, result cache effectiveness and index size.
+ *
+ * Search latencies are recorded as searches run; everything else is read from the {@link Indexer} shards and
+ * {@link QueryCache} when asked for, so the metrics cost nothing until they are looked at. Apart from
+ * {@link #report()}, the metrics are published to JMX by {@link #register(SearchMetrics)}.
+ */
+public class SearchMetrics implements SearchMetricsMXBean {
+    // The name under which the metrics appear in JMX clients
+    public static final String OBJECT_NAME = "searchengine:type=SearchMetrics";
+
+    private final List<Indexer> shards;
+    private final QueryCache cache;
+    // Sorted by mode, so reports list the modes in a stable order
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructor for SearchMetrics.
+     * @param indexer The index to report on.
+     * @param cache The result cache to report on.
+     */
+    public SearchMetrics(Indexer indexer, QueryCache cache) {
+        this(List.of(indexer), cache);
+    }
+
+    /**
+     * Constructor for SearchMetrics, reporting on the shards of an index together.
+     * @param shards The shards of the index to report on.
+     * @param cache The result cache to report on.
+     */
+    public SearchMetrics(List<Indexer> shards, QueryCache cache) {
+        this.shards = List.copyOf(shards);
+        this.cache = cache;
+    }
+
+    /**
+     * @return The volume and throughput of all indexing so far; shards index at the same time, so their
+     *         durations overlap rather than add up.
+     */
+    public IndexingStats getIndexingStats() {
+        return shards.stream().map(Indexer::getTotalIndexingStats).reduce(IndexingStats::alongside).get();
+    }
+
+    /**
+     * Returns the latency histogram of a search mode, creating it on first use.
+     * @param mode The search mode, such as "exact" or "wildcard".
+     * @return The histogram of the mode.
+     */
+    public LatencyHistogram latency(String mode) {
+        return latencies.computeIfAbsent(mode, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, replacing metrics registered earlier.
+     * @param metrics The metrics to publish.
+     */
+    public static void register(SearchMetrics metrics) {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return A plain-text summary of all metrics, one per line.
+     */
+    public String report() {
+        IndexingStats indexing = getIndexingStats();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Indexing: %d files, %.2f MB, %d words in %.1f s%n", indexing.getFiles(),
+                indexing.getBytes() / (1024.0 * 1024.0), indexing.getTokens(), indexing.getElapsedNanos() / 1e9));
+        report.append(String.format("Indexing rate: %.1f files/sec, %.2f MB/sec, %.0f words/sec%n",
+                indexing.getFilesPerSecond(), indexing.getMegabytesPerSecond(), indexing.getTokensPerSecond()));
+        report.append(String.format("Index: %d documents, %d terms%s, %d postings, %.2f MB in memory, %.2f MB mapped in %d segment(s)%n",
+                getDocumentCount(), getTermCount(), shards.size() == 1 ? "" : " summed over shards", getPostingCount(),
+                getRamBytesUsed() / (1024.0 * 1024.0), getDiskBytesUsed() / (1024.0 * 1024.0), getSegmentCount()));
+        report.append(String.format("Result cache: %d entries, %d hits, %d misses, %d evictions, %.1f%% hit rate%n",
+                getCacheSize(), getCacheHits(), getCacheMisses(), getCacheEvictions(), getCacheHitRate() * 100));
+        report.append("Search latency:").append(System.lineSeparator());
+        if (latencies.isEmpty()) {
+            report.append("  no searches yet").append(System.lineSeparator());
+        }
+        latencies.forEach((mode, histogram) ->
+                report.append("  ").append(mode).append(": ").append(histogram).append(System.lineSeparator()));
+        return report.toString();
+    }
+
+    @Override
+    public long getFilesIndexed() {
+        return getIndexingStats().getFiles();
+    }
+
+    @Override
+    public long getBytesIndexed() {
+        return getIndexingStats().getBytes();
+    }
+
+    @Override
+    public long getTokensIndexed() {
+        return getIndexingStats().getTokens();
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return getIndexingStats().getFilesPerSecond();
+    }
+
+    @Override
+    public double getMegabytesPerSecond() {
+        return getIndexingStats().getMegabytesPerSecond();
+    }
+
+    @Override
+    public double getTokensPerSecond() {
+        return getIndexingStats().getTokensPerSecond();
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return shards.stream().mapToInt(Indexer::getDocumentCount).sum();
+    }
+
+    /**
+     * @return The number of distinct terms of each shard, summed over the shards, so a term found in several
+     *         shards is counted once for each of them. Counting the terms of all shards together would mean
+     *         reading their whole vocabularies every time the index changes.
+     */
+    @Override
+    public int getTermCount() {
+        return shards.stream().mapToInt(Indexer::getTermCount).sum();
+    }
+
+    @Override
+    public long getPostingCount() {
+        return shards.stream().mapToLong(Indexer::getPostingCount).sum();
+    }
+
+    @Override
+    public long getRamBytesUsed() {
+        return shards.stream().mapToLong(Indexer::ramBytesUsed).sum();
+    }
+
+    @Override
+    public long getDiskBytesUsed() {
+        return shards.stream().mapToLong(Indexer::diskBytesUsed).sum();
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return shards.stream().mapToInt(Indexer::getSegmentCount).sum();
+    }
+
+    @Override
+    public long getIndexGeneration() {
+        return shards.stream().mapToLong(Indexer::getGeneration).sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        return cache.getEvictions();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        return cache.getHitRate();
+    }
+
+    @Override
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    @Override
+    public Map<String, LatencySummary> getSearchLatencies() {
+        Map<String, LatencySummary> summaries = new LinkedHashMap<>();
+        latencies.forEach((mode, histogram) -> summaries.put(mode, new LatencySummary(histogram.getCount(),
+                histogram.getMeanMillis(), histogram.getPercentileMillis(50), histogram.getPercentileMillis(90),
+                histogram.getPercentileMillis(99), histogram.getMaxMillis())));
+        return summaries;
+    }
+
+    @Override
+    public void resetSearchLatencies() {
+        latencies.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * A point-in-time summary of a {@link LatencyHistogram}, in milliseconds.
+     */
+    public static class LatencySummary {
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        @ConstructorProperties({"count", "meanMillis", "p50Millis", "p90Millis", "p99Millis", "maxMillis"})
+        public LatencySummary(long count, double meanMillis, double p50Millis, double p90Millis, double p99Millis,
+                              double maxMillis) {
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+}
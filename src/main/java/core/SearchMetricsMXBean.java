@@ -0,0 +1,57 @@
+package core;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link SearchMetrics}, as shown by JMX clients such as JConsole.
+ */
+public interface SearchMetricsMXBean {
+    long getFilesIndexed();
+
+    long getBytesIndexed();
+
+    long getTokensIndexed();
+
+    double getFilesPerSecond();
+
+    double getMegabytesPerSecond();
+
+    double getTokensPerSecond();
+
+    int getDocumentCount();
+
+    /**
+     * @return The number of distinct terms, summed over the shards if the index has several.
+     */
+    int getTermCount();
+
+    long getPostingCount();
+
+    long getRamBytesUsed();
+
+    long getDiskBytesUsed();
+
+    int getSegmentCount();
+
+    long getIndexGeneration();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getCacheEvictions();
+
+    double getCacheHitRate();
+
+    int getCacheSize();
+
+    /**
+     * @return The latency of each search mode that has been used, by mode name.
+     */
+    Map<String, SearchMetrics.LatencySummary> getSearchLatencies();
+
+    /**
+     * Clears the recorded search latencies.
+     */
+    void resetSearchLatencies();
+}
@@ -0,0 +1,28 @@
+package core;
+
+import java.util.Iterator;
+import java.util.NavigableSet;
+
+/**
+ * The SortedSetTermsEnum class walks the terms of an in-memory sorted set.
+ */
+class SortedSetTermsEnum implements TermsEnum {
+    private final NavigableSet<String> terms;
+    private Iterator<String> iterator;
+
+    SortedSetTermsEnum(NavigableSet<String> terms) {
+        this.terms = terms;
+        this.iterator = terms.iterator();
+    }
+
+    @Override
+    public String seekCeil(String target) {
+        iterator = terms.tailSet(target, true).iterator();
+        return next();
+    }
+
+    @Override
+    public String next() {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+}
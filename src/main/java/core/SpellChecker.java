@@ -4,73 +4,66 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * The SpellChecker class suggests dictionary words close to a misspelled term.
+ * The dictionary is held in a hash set for membership checks and in a {@link BKTree} for suggestions,
+ * so a lookup only compares the term against a small part of the dictionary.
+ */
 public class SpellChecker {
-    private List<String> dictionary;
+    /**
+     * The default largest edit distance between a term and a suggestion.
+     */
+    public static final int DEFAULT_MAX_EDIT_DISTANCE = 2;
+
+    private final Set<String> dictionary = new HashSet<>();
+    private final BKTree suggestionTree = new BKTree();
+    private final int maxEditDistance;
 
     public SpellChecker(String dictionaryPath) {
-        dictionary = loadDictionary(dictionaryPath);
+        this(dictionaryPath, DEFAULT_MAX_EDIT_DISTANCE);
+    }
+
+    /**
+     * Constructor for SpellChecker.
+     * @param dictionaryPath The path of the dictionary file, with one word per line.
+     * @param maxEditDistance The largest edit distance between a term and a suggestion.
+     */
+    public SpellChecker(String dictionaryPath, int maxEditDistance) {
+        this.maxEditDistance = maxEditDistance;
+        loadDictionary(dictionaryPath);
     }
 
-    private List<String> loadDictionary(String dictionaryPath) {
-        List<String> dictionary = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader("resources/words.txt"))) {
+    private void loadDictionary(String dictionaryPath) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(dictionaryPath))) {
             String word;
             while ((word = reader.readLine()) != null) {
-                dictionary.add(word.toLowerCase());
+                word = Tokenizer.lowercase(word);
+                if (dictionary.add(word)) {
+                    suggestionTree.add(word);
+                }
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
-        return dictionary;
     }
 
+    /**
+     * Suggests corrections for a term.
+     *
+     * @param term The term to check.
+     * @return The dictionary words at the smallest edit distance from the term, if that distance is at most the
+     *         maximum edit distance; an empty list if the term is spelled correctly or nothing is close enough.
+     */
     public List<String> suggestCorrections(String term) {
-        List<String> suggestions = new ArrayList<>();
-        int minDistance = Integer.MAX_VALUE;
-        
-        if (dictionary.contains(term.toLowerCase())) {
+        term = Tokenizer.lowercase(term);
+        if (dictionary.contains(term)) {
             // Term is correct, return empty list
-            return suggestions;
-        }
-        
-        for (String word : dictionary) {
-            int distance = calculateLevenshteinDistance(term, word);
-            if (distance < minDistance) {
-                suggestions.clear();
-                suggestions.add(word);
-                minDistance = distance;
-            } else if (distance == minDistance) {
-                suggestions.add(word);
-            }
-        }
-
-        return suggestions;
-    }
-
-    private int calculateLevenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-
-        for (int i = 0; i <= s1.length(); i++) {
-            for (int j = 0; j <= s2.length(); j++) {
-                if (i == 0) {
-                    dp[i][j] = j;
-                } else if (j == 0) {
-                    dp[i][j] = i;
-                } else {
-                    dp[i][j] = min(dp[i - 1][j - 1]
-                            + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1),
-                            dp[i - 1][j] + 1,
-                            dp[i][j - 1] + 1);
-                }
-            }
+            return new ArrayList<>();
         }
-
-        return dp[s1.length()][s2.length()];
-    }
-
-    private int min(int x, int y, int z) {
-        return Math.min(Math.min(x, y), z);
+        return suggestionTree.closest(term, maxEditDistance);
     }
 }
@@ -0,0 +1,65 @@
+package core;
+
+/**
+ * The TermCounter class counts the distinct terms of an indexer's snapshots for its metrics, which are read every
+ * second while the Diagnostics window is open and on every JMX poll.
+ *
+ * Terms are counted once per set of segments, which only changes on a flush, merge or load, and then for each
+ * in-memory term as it is appended to the {@link TermLog}, so a count reads only the terms added since the last
+ * one rather than the whole vocabulary.
+ */
+class TermCounter {
+    // The segments whose distinct terms were counted, and how many there were
+    private IndexSegment[] segments;
+    private int segmentTerms;
+    // The log whose first checked entries were counted, and how many of them are in none of the segments
+    private TermLog termLog;
+    private int checked;
+    private int inMemoryOnly;
+
+    /**
+     * Counts the distinct terms of a snapshot. Terms added to the in-memory index after the snapshot was taken
+     * may be included if a later snapshot was counted before.
+     *
+     * @param snapshot The snapshot to count.
+     * @return The number of distinct terms in its segments and in memory.
+     */
+    synchronized int count(IndexSnapshot snapshot) {
+        IndexSegment[] current = snapshot.getSegments();
+        if (current != segments) {
+            segments = current;
+            segmentTerms = 0;
+            for (int i = 0; i < current.length; i++) {
+                for (int ordinal = 0; ordinal < current[i].termCount(); ordinal++) {
+                    if (!inAny(current, i, current[i].term(ordinal))) {
+                        segmentTerms++;
+                    }
+                }
+            }
+            termLog = null;
+        }
+        if (snapshot.getTermLog() != termLog) {
+            termLog = snapshot.getTermLog();
+            checked = 0;
+            inMemoryOnly = 0;
+        }
+        for (; checked < snapshot.getTermLogSize(); checked++) {
+            if (!inAny(current, current.length, termLog.get(checked))) {
+                inMemoryOnly++;
+            }
+        }
+        return segmentTerms + inMemoryOnly;
+    }
+
+    /**
+     * @return Whether one of the first count segments contains the term.
+     */
+    private static boolean inAny(IndexSegment[] segments, int count, String term) {
+        for (int i = 0; i < count; i++) {
+            if (segments[i].findTerm(term) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The TermLog class lists the in-memory terms of an indexer in the order they were first indexed. A snapshot
+ * records how many entries there were when it was taken, and those entries never change, so it can read its terms
+ * by ordinal while the indexer appends more. Only the indexer appends, holding its lock.
+ *
+ * The log also keeps a {@link TrigramIndex} over its first entries for wildcard searches. The terms added since
+ * are few and simply checked one by one; the trigram index is rebuilt only once they have grown to a quarter of
+ * the terms it covers, so while indexing goes on the builds cost about as much as building it once at the end.
+ */
+class TermLog {
+    // Below this many terms outside the trigram index, checking them is cheaper than a rebuild
+    private static final int MIN_REBUILD = 4096;
+
+    private volatile String[] terms = new String[16];
+    private int size;
+    private volatile TrigramIndex trigrams;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * Appends a term that is not in the log yet.
+     * @param term The term to append.
+     */
+    void add(String term) {
+        if (size == terms.length) {
+            terms = Arrays.copyOf(terms, size * 2);
+        }
+        terms[size++] = term;
+    }
+
+    /**
+     * @return The number of terms appended so far.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param ordinal The position of a term in the log, below the size recorded by the caller's snapshot.
+     * @return The term.
+     */
+    String get(int ordinal) {
+        return terms[ordinal];
+    }
+
+    /**
+     * Returns the trigram index over the first terms of the log, rebuilding it over the first count terms if
+     * too many of them are not covered yet. A lookup made while another rebuilds it gets the previous index.
+     *
+     * @param count The number of terms the caller's snapshot sees.
+     * @return An index whose ordinals are positions in the log; it may cover more or fewer than count terms.
+     *         Null if no index has been built yet.
+     */
+    TrigramIndex trigrams(int count) {
+        TrigramIndex current = trigrams;
+        int covered = current == null ? 0 : current.termCount();
+        if (count - covered >= Math.max(MIN_REBUILD, covered / 4) && rebuilding.compareAndSet(false, true)) {
+            try {
+                String[] snapshotTerms = terms;
+                current = new TrigramIndex(ordinal -> snapshotTerms[ordinal], count);
+                trigrams = current;
+            } finally {
+                rebuilding.set(false);
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,26 @@
+package core;
+
+/**
+ * The TermQuery class matches the documents containing a single term.
+ */
+class TermQuery implements Query {
+    private final String term;
+
+    /**
+     * Constructor for TermQuery.
+     * @param term The lowercased term.
+     */
+    TermQuery(String term) {
+        this.term = term;
+    }
+
+    @Override
+    public PostingsCursor postings(IndexSnapshot snapshot) {
+        return snapshot.postings(term);
+    }
+
+    @Override
+    public long cost(IndexSnapshot snapshot) {
+        return snapshot.docFreq(term);
+    }
+}
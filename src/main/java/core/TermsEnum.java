@@ -0,0 +1,19 @@
+package core;
+
+/**
+ * A TermsEnum walks a term dictionary in sorted order, and can jump forward to any term.
+ */
+interface TermsEnum {
+    /**
+     * Positions the enum at the smallest term greater than or equal to the target.
+     * @param target The term to seek to.
+     * @return The term the enum is positioned at, or null if every term is smaller than the target.
+     */
+    String seekCeil(String target);
+
+    /**
+     * Advances to the next term.
+     * @return The next term, or null if the enum is exhausted.
+     */
+    String next();
+}
@@ -0,0 +1,74 @@
+package core;
+
+import java.util.*;
+
+/**
+ * The TieredMergePolicy class decides which segments of an index to merge. Segments are grouped into tiers by
+ * size, each tier holding segments up to {@code segmentsPerTier} times larger than the tier below, and a tier is
+ * merged once it holds {@code segmentsPerTier} segments. The result belongs to the next tier up, so every
+ * posting is rewritten once per tier rather than once per flush, and the number of segments a query reads
+ * grows with the logarithm of the index size.
+ */
+class TieredMergePolicy {
+    private final int segmentsPerTier;
+    private final long floorBytes;
+    private final long maxMergedBytes;
+
+    /**
+     * Constructor for TieredMergePolicy with 8 segments per tier, a 2 MB floor and merges of up to 1 GB.
+     */
+    TieredMergePolicy() {
+        this(8, 2L << 20, 1L << 30);
+    }
+
+    /**
+     * Constructor for TieredMergePolicy.
+     * @param segmentsPerTier The number of segments of a tier that are merged together; at least 2.
+     * @param floorBytes Segments smaller than this are treated as this size, so tiny flushes share the lowest tier.
+     * @param maxMergedBytes The largest segment a merge may produce; segment files are limited to 2 GB.
+     */
+    TieredMergePolicy(int segmentsPerTier, long floorBytes, long maxMergedBytes) {
+        if (segmentsPerTier < 2) {
+            throw new IllegalArgumentException("A merge needs at least 2 segments");
+        }
+        this.segmentsPerTier = segmentsPerTier;
+        this.floorBytes = Math.max(1, floorBytes);
+        this.maxMergedBytes = maxMergedBytes;
+    }
+
+    /**
+     * Finds the segments to merge next: the smallest segments of the lowest tier that is full.
+     *
+     * @param segments The segments of the index.
+     * @return The segments to merge, or an empty list if no tier is full.
+     */
+    List<IndexSegment> findMerge(IndexSegment[] segments) {
+        Map<Integer, List<IndexSegment>> tiers = new TreeMap<>();
+        for (IndexSegment segment : segments) {
+            tiers.computeIfAbsent(tier(segment.sizeInBytes()), key -> new ArrayList<>()).add(segment);
+        }
+        for (List<IndexSegment> tier : tiers.values()) {
+            if (tier.size() < segmentsPerTier) {
+                continue;
+            }
+            tier.sort(Comparator.comparingLong(IndexSegment::sizeInBytes));
+            List<IndexSegment> merge = tier.subList(0, segmentsPerTier);
+            long mergedBytes = 0;
+            for (IndexSegment segment : merge) {
+                mergedBytes += segment.sizeInBytes();
+            }
+            if (mergedBytes <= maxMergedBytes) {
+                return new ArrayList<>(merge);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private int tier(long bytes) {
+        int tier = 0;
+        for (long limit = floorBytes; bytes > limit && limit <= Long.MAX_VALUE / segmentsPerTier; limit *= segmentsPerTier) {
+            tier++;
+        }
+        return tier;
+    }
+}
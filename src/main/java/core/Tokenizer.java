@@ -0,0 +1,220 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The Tokenizer class splits text into lowercased words in a single pass, without regular expressions.
+ *
+ * Words are runs of the characters matched by {@code \w} (ASCII letters, digits and underscore), which are
+ * lowercased as they are read. Every distinct word is turned into a String only the first time it occurs: the
+ * tokenizer remembers the words it has returned in an open-addressing table and hands out the same String
+ * again for later occurrences, so tokenizing a file allocates per distinct word rather than per word.
+ *
+ * Besides a CharSequence, a tokenizer can read raw bytes handed to it in chunks, so a file can be tokenized
+ * straight from a read buffer without decoding it. Bytes are read as UTF-8, or any encoding that shares its
+ * ASCII range: every word character is a single ASCII byte, and the bytes of a multi-byte character never are,
+ * so the words are the same as those of the decoded text. A word cut off at the end of a chunk is continued by
+ * the next one.
+ */
+public class Tokenizer {
+    private final CharSequence text;
+    private ByteBuffer bytes;
+    private boolean lastChunk;
+    private int offset;
+    // The word being read, lowercased
+    private char[] buffer = new char[32];
+    private int length;
+    private int hash;
+    private String[] words = new String[64];
+    private int[] hashes = new int[64];
+    private int wordCount;
+
+    /**
+     * Constructor for Tokenizer.
+     * @param text The text to split.
+     */
+    public Tokenizer(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Constructor for a Tokenizer that reads bytes passed to {@link #setInput(ByteBuffer, boolean)}.
+     */
+    public Tokenizer() {
+        this.text = null;
+    }
+
+    /**
+     * Sets the next chunk of bytes to split. A word that the previous chunk ended in continues in this one.
+     *
+     * @param chunk The bytes between its position and limit are read; the position advances as words are read.
+     * @param last Whether this is the last chunk, so that a word reaching its end is complete.
+     */
+    public void setInput(ByteBuffer chunk, boolean last) {
+        this.bytes = chunk;
+        this.lastChunk = last;
+    }
+
+    /**
+     * Reads the next word.
+     *
+     * @return The lowercased word, or null at the end of the text or of the current chunk of bytes.
+     *         Equal words are returned as the same String.
+     */
+    public String next() {
+        if (text == null) {
+            return nextFromBytes();
+        }
+        int end = text.length();
+        while (offset < end && !isWordChar(text.charAt(offset))) {
+            offset++;
+        }
+        if (offset == end) {
+            return null;
+        }
+        char c;
+        while (offset < end && isWordChar(c = text.charAt(offset))) {
+            append(c);
+            offset++;
+        }
+        return intern();
+    }
+
+    private String nextFromBytes() {
+        ByteBuffer chunk = bytes;
+        int i = chunk.position();
+        int end = chunk.limit();
+        if (length == 0) {
+            while (i < end && !isWordChar((char) chunk.get(i))) {
+                i++;
+            }
+        }
+        char c;
+        while (i < end && isWordChar(c = (char) chunk.get(i))) {
+            append(c);
+            i++;
+        }
+        chunk.position(i);
+        if (length == 0 || (i == end && !lastChunk)) {
+            // Nothing left in this chunk, or the word may continue in the next one
+            return null;
+        }
+        return intern();
+    }
+
+    private void append(char c) {
+        if (isAsciiUpperCase(c)) {
+            c += 'a' - 'A';
+        }
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, length * 2);
+        }
+        buffer[length++] = c;
+        // Same as String.hashCode, so the table and the returned Strings agree
+        hash = 31 * hash + c;
+    }
+
+    /**
+     * Matches the characters of the {@code \w} pattern.
+     * @param c The character to test.
+     * @return Whether the character belongs to a word.
+     */
+    public static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Lowercases text the way words are lowercased as they are read: only the ASCII letters A to Z change.
+     * Unlike {@link String#toLowerCase()}, the result does not depend on the default locale, so a query
+     * such as {@code INDEX} finds the indexed word {@code index} under a Turkish locale too.
+     *
+     * @param text The text to lowercase.
+     * @return The text with its ASCII capital letters lowercased; the same String if it has none.
+     */
+    public static String lowercase(String text) {
+        int i = 0;
+        while (i < text.length() && !isAsciiUpperCase(text.charAt(i))) {
+            i++;
+        }
+        if (i == text.length()) {
+            return text;
+        }
+        char[] chars = text.toCharArray();
+        for (; i < chars.length; i++) {
+            if (isAsciiUpperCase(chars[i])) {
+                chars[i] += 'a' - 'A';
+            }
+        }
+        return new String(chars);
+    }
+
+    private static boolean isAsciiUpperCase(char c) {
+        return c <= 'Z' && c >= 'A';
+    }
+
+    /**
+     * Returns the String for the word in the buffer, creating it if the word has not been seen before,
+     * and empties the buffer.
+     */
+    private String intern() {
+        int length = this.length;
+        int hash = this.hash;
+        this.length = 0;
+        this.hash = 0;
+        int mask = words.length - 1;
+        int slot = mix(hash) & mask;
+        String word;
+        while ((word = words[slot]) != null) {
+            if (hashes[slot] == hash && matchesBuffer(word, length)) {
+                return word;
+            }
+            slot = (slot + 1) & mask;
+        }
+        word = new String(buffer, 0, length);
+        words[slot] = word;
+        hashes[slot] = hash;
+        if (++wordCount * 2 > words.length) {
+            grow();
+        }
+        return word;
+    }
+
+    private boolean matchesBuffer(String word, int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        String[] oldWords = words;
+        int[] oldHashes = hashes;
+        words = new String[oldWords.length * 2];
+        hashes = new int[oldWords.length * 2];
+        int mask = words.length - 1;
+        for (int i = 0; i < oldWords.length; i++) {
+            if (oldWords[i] != null) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (words[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                words[slot] = oldWords[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a String hash code, which vary little between similar short words.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
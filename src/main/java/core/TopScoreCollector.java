@@ -0,0 +1,78 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The TopScoreCollector class keeps the k highest-scoring documents seen so far in a bounded min-heap,
+ * so selecting them costs O(n log k) instead of sorting all n matches. Documents with equal scores are
+ * ranked by ascending ID.
+ */
+class TopScoreCollector {
+    private final int k;
+    // The weakest of the collected documents is at the head
+    private final PriorityQueue<ScoredDoc> heap;
+
+    /**
+     * Constructor for TopScoreCollector.
+     * @param k The number of documents to keep; must be positive.
+     */
+    TopScoreCollector(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.min(k, 1024), (a, b) -> a.score != b.score
+                ? Double.compare(a.score, b.score)
+                : Integer.compare(b.docId, a.docId));
+    }
+
+    /**
+     * Offers a document. Documents must be offered in ascending ID order, so that a later document
+     * with the same score as the weakest collected one never displaces it.
+     *
+     * @param docId The document ID.
+     * @param score The score of the document.
+     */
+    void collect(int docId, double score) {
+        if (heap.size() < k) {
+            heap.add(new ScoredDoc(docId, score));
+        } else if (score > heap.peek().score) {
+            heap.poll();
+            heap.add(new ScoredDoc(docId, score));
+        }
+    }
+
+    /**
+     * @return The score a document must exceed to be collected: the weakest collected score once k documents
+     *         are collected, and negative infinity before that.
+     */
+    double threshold() {
+        return heap.size() < k ? Double.NEGATIVE_INFINITY : heap.peek().score;
+    }
+
+    /**
+     * @return The collected documents, best first.
+     */
+    List<ScoredDoc> results() {
+        List<ScoredDoc> results = new ArrayList<>(heap.size());
+        PriorityQueue<ScoredDoc> copy = new PriorityQueue<>(heap);
+        while (!copy.isEmpty()) {
+            results.add(copy.poll());
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * A document and its score.
+     */
+    static class ScoredDoc {
+        final int docId;
+        final double score;
+
+        ScoredDoc(int docId, double score) {
+            this.docId = docId;
+            this.score = score;
+        }
+    }
+}
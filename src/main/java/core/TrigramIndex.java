@@ -0,0 +1,237 @@
+package core;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * The TrigramIndex class finds the terms of a dictionary that may match a wildcard pattern without looking at
+ * every term. It is built once from a list of terms and never changes.
+ *
+ * Every term is indexed under each sequence of three characters it contains, its start and end counting as a
+ * character of their own, so {@code base} is indexed under {@code ^ba}, {@code bas}, {@code ase} and {@code se$}.
+ * A term matching {@code *ase} must contain {@code se$}, and one matching {@code *tio*} must contain {@code tio},
+ * so intersecting the term lists of the trigrams of a pattern's literal text leaves a short list of candidates,
+ * which still have to be matched against the pattern itself. Patterns without three consecutive known characters,
+ * such as {@code *ab*}, cannot be narrowed this way.
+ *
+ * Each trigram is given a dense ID through a hash table, and the term lists of all trigrams are kept back to
+ * back in one array of term ordinals, which takes about 4 bytes per trigram of a term, or 40 bytes for a term of
+ * ten characters.
+ */
+class TrigramIndex {
+    // A character takes 16 bits, so 17 bits also leave room for the start and end of a term
+    private static final int BITS_PER_CHAR = 17;
+    private static final int BOUNDARY = 1 << 16;
+
+    // Open addressing hash table from trigram + 1, 0 marking a free slot, to trigram ID
+    private long[] keys = new long[1024];
+    private int[] ids = new int[1024];
+    private int gramCount;
+    // The terms with trigram ID i are ordinals[starts[i]] to ordinals[starts[i + 1] - 1], in ascending order
+    private final int[] starts;
+    private final int[] ordinals;
+    private final int termCount;
+
+    /**
+     * Constructor for TrigramIndex.
+     *
+     * @param terms Gives the term with each ordinal; called once for every ordinal, in ascending order.
+     * @param termCount The number of terms, whose ordinals are 0 to termCount - 1.
+     */
+    TrigramIndex(IntFunction<String> terms, int termCount) {
+        this.termCount = termCount;
+        // The trigram IDs of every term in turn, each term's IDs ending at termEnds[ordinal]
+        int[] termGrams = new int[Math.max(16, termCount * 8)];
+        int[] termEnds = new int[termCount];
+        int[] counts = new int[16];
+        int[] lastOrdinal = new int[16];
+        int total = 0;
+        for (int ordinal = 0; ordinal < termCount; ordinal++) {
+            String term = terms.apply(ordinal);
+            if (total + term.length() > termGrams.length) {
+                termGrams = Arrays.copyOf(termGrams, Math.max(termGrams.length * 2, total + term.length()));
+            }
+            // A term of n characters has n trigrams once its start and end are added
+            for (int i = 0; i < term.length(); i++) {
+                int id = idOf(gram(term, i - 1), true);
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, id * 2);
+                    lastOrdinal = Arrays.copyOf(lastOrdinal, id * 2);
+                }
+                // A trigram that occurs twice in a term is listed once
+                if (counts[id] == 0 || lastOrdinal[id] != ordinal) {
+                    counts[id]++;
+                    lastOrdinal[id] = ordinal;
+                    termGrams[total++] = id;
+                }
+            }
+            termEnds[ordinal] = total;
+        }
+
+        starts = new int[gramCount + 1];
+        for (int id = 0; id < gramCount; id++) {
+            starts[id + 1] = starts[id] + counts[id];
+        }
+        ordinals = new int[total];
+        int[] filled = Arrays.copyOf(starts, gramCount);
+        int position = 0;
+        for (int ordinal = 0; ordinal < termCount; ordinal++) {
+            for (; position < termEnds[ordinal]; position++) {
+                ordinals[filled[termGrams[position]]++] = ordinal;
+            }
+        }
+    }
+
+    /**
+     * @return The number of terms the index was built from.
+     */
+    int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Finds the terms that may match a wildcard pattern.
+     *
+     * @param pattern The pattern, in which '*' stands for any sequence of characters.
+     * @return The ordinals of the terms containing every trigram of the pattern, in ascending order; some of them
+     *         may still not match. Null if the pattern has no trigram, so that any term may match.
+     */
+    int[] candidates(String pattern) {
+        long[] required = requiredGrams(pattern);
+        if (required.length == 0) {
+            return null;
+        }
+        // Start from the rarest trigram, so that the candidates only shrink from there
+        int[] lists = new int[required.length];
+        for (int i = 0; i < required.length; i++) {
+            int index = idOf(required[i], false);
+            if (index < 0) {
+                return new int[0];
+            }
+            lists[i] = index;
+        }
+        Integer[] order = new Integer[lists.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = lists[i];
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(starts[a + 1] - starts[a], starts[b + 1] - starts[b]));
+
+        int[] result = Arrays.copyOfRange(ordinals, starts[order[0]], starts[order[0] + 1]);
+        int size = result.length;
+        for (int i = 1; i < order.length && size > 0; i++) {
+            size = intersect(result, size, starts[order[i]], starts[order[i] + 1]);
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Keeps the first size entries of candidates that also appear in ordinals[from, to), in place.
+     * The list is searched with exponentially growing steps, since it is usually much longer than the candidates.
+     * @return The number of entries kept.
+     */
+    private int intersect(int[] candidates, int size, int from, int to) {
+        int kept = 0;
+        int position = from;
+        for (int i = 0; i < size && position < to; i++) {
+            int target = candidates[i];
+            int step = 1;
+            int high = position;
+            while (high < to && ordinals[high] < target) {
+                position = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(ordinals, position, Math.min(high + 1, to), target);
+            if (found >= 0) {
+                candidates[kept++] = target;
+                position = found + 1;
+            } else {
+                position = -found - 1;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return The distinct trigrams every term matching the pattern contains.
+     */
+    static long[] requiredGrams(String pattern) {
+        long[] required = new long[0];
+        String[] literals = pattern.split("\\*", -1);
+        for (int i = 0; i < literals.length; i++) {
+            // The text before the first '*' starts the term, and the text after the last '*' ends it
+            String literal = literals[i];
+            int from = i == 0 ? -1 : 0;
+            int to = i == literals.length - 1 ? literal.length() : literal.length() - 1;
+            for (int position = from; position + 2 < to + 1; position++) {
+                required = Arrays.copyOf(required, required.length + 1);
+                required[required.length - 1] = gram(literal, position);
+            }
+        }
+        Arrays.sort(required);
+        int distinct = 0;
+        for (int i = 0; i < required.length; i++) {
+            if (i == 0 || required[i] != required[i - 1]) {
+                required[distinct++] = required[i];
+            }
+        }
+        return Arrays.copyOf(required, distinct);
+    }
+
+    /**
+     * @return The trigram of the three characters of text starting at position, where position -1 and
+     *         position text.length() stand for the start and the end of the text.
+     */
+    private static long gram(String text, int position) {
+        long gram = 0;
+        for (int i = position; i < position + 3; i++) {
+            int c = i < 0 || i >= text.length() ? BOUNDARY : text.charAt(i);
+            gram = (gram << BITS_PER_CHAR) | c;
+        }
+        return gram;
+    }
+
+    /**
+     * Looks up the ID of a trigram.
+     * @param add Whether to give the trigram the next free ID if it has none.
+     * @return The ID, or -1 if the trigram has none and add is false.
+     */
+    private int idOf(long gram, boolean add) {
+        long key = gram + 1;
+        int mask = keys.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!add) {
+            return -1;
+        }
+        keys[slot] = key;
+        ids[slot] = gramCount;
+        if (++gramCount * 2 > keys.length) {
+            grow();
+        }
+        return gramCount - 1;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new long[oldKeys.length * 2];
+        ids = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = Long.hashCode(oldKeys[i] * 0x9E3779B97F4A7C15L) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package core;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The WildcardQuery class matches terms against a pattern in which '*' stands for any sequence of characters
+ * and every other character matches itself.
+ *
+ * The pattern is compiled into a small automaton that is intersected with a sorted term dictionary: the
+ * literal prefix before the first '*' becomes a range scan, automaton states are shared between consecutive
+ * terms with a common prefix, and as soon as a prefix can no longer lead to a match the dictionary seeks
+ * past every term that starts with it.
+ */
+class WildcardQuery {
+    private final char[] pattern;
+    private final String prefix;
+    private final int words;
+    private final long[] start;
+
+    /**
+     * Constructor for WildcardQuery.
+     * @param pattern The wildcard pattern, matched case-sensitively.
+     */
+    WildcardQuery(String pattern) {
+        // Consecutive stars are equivalent to one
+        this.pattern = pattern.replaceAll("\\*+", "*").toCharArray();
+        int star = pattern.indexOf('*');
+        this.prefix = star < 0 ? pattern : pattern.substring(0, star);
+        // Automaton state i means "the first i pattern characters are matched"
+        this.words = (this.pattern.length + 1 + 63) / 64;
+        this.start = new long[words];
+        set(start, 0);
+        closure(start);
+    }
+
+    /**
+     * @return The literal text every matching term starts with.
+     */
+    String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return The pattern, with consecutive stars collapsed into one.
+     */
+    String getPattern() {
+        return new String(pattern);
+    }
+
+    /**
+     * @param term The term to match.
+     * @return Whether the whole term matches the pattern.
+     */
+    boolean matches(String term) {
+        if (!term.startsWith(prefix)) {
+            return false;
+        }
+        long[] states = start;
+        long[] next = new long[words];
+        for (int i = 0; i < term.length(); i++) {
+            if (!step(states, term.charAt(i), next)) {
+                return false;
+            }
+            long[] reached = next;
+            next = states == start ? new long[words] : states;
+            states = reached;
+        }
+        return isSet(states, pattern.length);
+    }
+
+    /**
+     * Finds every term of the dictionary matching the pattern.
+     * @param terms The dictionary to search.
+     * @param matches Receives each matching term, in dictionary order.
+     */
+    void collectMatches(TermsEnum terms, Consumer<String> matches) {
+        long[][] states = new long[17][];
+        states[0] = start;
+        String previous = "";
+        int computed = 0;
+
+        String term = terms.seekCeil(prefix);
+        while (term != null && term.startsWith(prefix)) {
+            int depth = Math.min(computed, commonPrefixLength(previous, term));
+            boolean dead = false;
+            while (depth < term.length()) {
+                if (depth + 1 == states.length) {
+                    states = Arrays.copyOf(states, states.length * 2);
+                }
+                if (states[depth + 1] == null) {
+                    states[depth + 1] = new long[words];
+                }
+                if (!step(states[depth], term.charAt(depth), states[depth + 1])) {
+                    dead = true;
+                    break;
+                }
+                depth++;
+            }
+            previous = term;
+            computed = depth;
+
+            if (!dead) {
+                if (isSet(states[depth], pattern.length)) {
+                    matches.accept(term);
+                }
+                term = terms.next();
+            } else if (term.charAt(depth) == Character.MAX_VALUE) {
+                term = terms.next();
+            } else {
+                // No term starting with term[0..depth] can match, so jump to the first term after all of them
+                term = terms.seekCeil(term.substring(0, depth) + (char) (term.charAt(depth) + 1));
+            }
+        }
+    }
+
+    /**
+     * Computes the states reachable from {@code from} by reading one character.
+     * @return false if no state is reachable.
+     */
+    private boolean step(long[] from, char c, long[] to) {
+        Arrays.fill(to, 0);
+        boolean any = false;
+        for (int i = 0; i < pattern.length; i++) {
+            if (isSet(from, i)) {
+                if (pattern[i] == '*') {
+                    set(to, i);
+                    any = true;
+                } else if (pattern[i] == c) {
+                    set(to, i + 1);
+                    any = true;
+                }
+            }
+        }
+        if (any) {
+            closure(to);
+        }
+        return any;
+    }
+
+    /**
+     * Adds the states reachable without reading a character: a star may match the empty sequence.
+     */
+    private void closure(long[] states) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (pattern[i] == '*' && isSet(states, i)) {
+                set(states, i + 1);
+            }
+        }
+    }
+
+    private static boolean isSet(long[] states, int i) {
+        return (states[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] states, int i) {
+        states[i >>> 6] |= 1L << i;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+}
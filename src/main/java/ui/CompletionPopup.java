@@ -0,0 +1,234 @@
+package ui;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import core.Tokenizer;
+
+/**
+ * CompletionPopup suggests completions of the word being typed into a text field, in a list below the field.
+ *
+ * Lookups are debounced: one is made only once typing has paused for a moment, and it runs off the event
+ * dispatch thread. Suggestions that arrive after the text changed again are discarded. While the list is shown,
+ * Up and Down select a suggestion, Enter or a click puts it in place of the word, and Escape closes the list.
+ */
+class CompletionPopup {
+    private static final Logger LOGGER = Logger.getLogger(CompletionPopup.class.getName());
+
+    private final JTextField field;
+    private final Function<String, List<String>> completer;
+    private final Timer debounceTimer;
+    private final JPopupMenu popup = new JPopupMenu();
+    private final DefaultListModel<String> suggestions = new DefaultListModel<>();
+    private final JList<String> suggestionList = new JList<>(suggestions);
+    // Incremented by every edit, so that a lookup can tell whether its suggestions are still wanted
+    private int edits;
+    // Set while a suggestion is put in place, which should not trigger another lookup
+    private boolean accepting;
+    private SwingWorker<List<String>, Void> currentLookup;
+
+    /**
+     * Constructor for CompletionPopup. Adds the popup to the field.
+     * @param field The text field to complete words in.
+     * @param completer Finds the completions of a word prefix; called on a background thread.
+     * @param debounceMillis How long typing must pause before a lookup is made.
+     */
+    CompletionPopup(JTextField field, Function<String, List<String>> completer, int debounceMillis) {
+        this.field = field;
+        this.completer = completer;
+        debounceTimer = new Timer(debounceMillis, e -> lookUp());
+        debounceTimer.setRepeats(false);
+
+        suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        suggestionList.setFocusable(false);
+        suggestionList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = suggestionList.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    accept(suggestions.get(index));
+                }
+            }
+        });
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(suggestionList));
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                edited();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                edited();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not change the text
+            }
+        });
+        bindKey("DOWN", "completion-next", () -> moveSelection(1));
+        bindKey("UP", "completion-previous", () -> moveSelection(-1));
+        bindKey("ESCAPE", "completion-close", () -> {
+            popup.setVisible(false);
+            return true;
+        });
+        bindKey("ENTER", "completion-accept", () -> {
+            String selected = suggestionList.getSelectedValue();
+            if (selected == null) {
+                return false;
+            }
+            accept(selected);
+            return true;
+        });
+    }
+
+    /**
+     * Binds a key of the field to an action taken while the popup is visible. Otherwise, or if the action
+     * declines the key, the key does what it did before.
+     */
+    private void bindKey(String key, String name, KeyHandler handler) {
+        KeyStroke keyStroke = KeyStroke.getKeyStroke(key);
+        Object previousName = field.getInputMap().get(keyStroke);
+        Action previous = previousName == null ? null : field.getActionMap().get(previousName);
+        field.getInputMap().put(keyStroke, name);
+        field.getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!(popup.isVisible() && handler.handle()) && previous != null) {
+                    previous.actionPerformed(e);
+                }
+            }
+        });
+    }
+
+    private interface KeyHandler {
+        /**
+         * @return Whether the key was handled.
+         */
+        boolean handle();
+    }
+
+    private boolean moveSelection(int delta) {
+        int size = suggestions.size();
+        if (size == 0) {
+            return false;
+        }
+        int index = Math.floorMod(suggestionList.getSelectedIndex() + delta, size);
+        if (suggestionList.getSelectedIndex() < 0 && delta < 0) {
+            index = size - 1;
+        }
+        suggestionList.setSelectedIndex(index);
+        suggestionList.ensureIndexIsVisible(index);
+        return true;
+    }
+
+    private void edited() {
+        edits++;
+        if (accepting) {
+            return;
+        }
+        debounceTimer.restart();
+    }
+
+    /**
+     * Starts a background lookup of the word before the caret, replacing a lookup still running.
+     */
+    private void lookUp() {
+        String prefix = wordBeforeCaret();
+        if (currentLookup != null) {
+            currentLookup.cancel(true);
+        }
+        if (prefix.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        int requestedAt = edits;
+        currentLookup = new SwingWorker<List<String>, Void>() {
+            @Override
+            protected List<String> doInBackground() {
+                return completer.apply(prefix);
+            }
+
+            @Override
+            protected void done() {
+                // The text changed again, or a newer lookup has superseded this one
+                if (isCancelled() || requestedAt != edits) {
+                    return;
+                }
+                try {
+                    show(prefix, get());
+                } catch (InterruptedException | ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Could not look up completions of " + prefix, e);
+                }
+            }
+        };
+        currentLookup.execute();
+    }
+
+    private void show(String prefix, List<String> completions) {
+        suggestions.clear();
+        // A word typed in full needs no suggestion of itself alone
+        if (completions.isEmpty() || completions.size() == 1 && completions.get(0).equalsIgnoreCase(prefix)
+                || !field.isShowing()) {
+            popup.setVisible(false);
+            return;
+        }
+        completions.forEach(suggestions::addElement);
+        suggestionList.clearSelection();
+        suggestionList.setVisibleRowCount(Math.min(completions.size(), 10));
+        popup.pack();
+        try {
+            int x = field.modelToView2D(field.getCaretPosition() - prefix.length()).getBounds().x;
+            popup.show(field, x, field.getHeight());
+        } catch (BadLocationException e) {
+            popup.show(field, 0, field.getHeight());
+        }
+        // Showing the popup must not take the focus from the field
+        field.requestFocusInWindow();
+    }
+
+    /**
+     * Replaces the word before the caret with a completion.
+     */
+    private void accept(String completion) {
+        String prefix = wordBeforeCaret();
+        int caret = field.getCaretPosition();
+        accepting = true;
+        try {
+            field.getDocument().remove(caret - prefix.length(), prefix.length());
+            field.getDocument().insertString(caret - prefix.length(), completion, null);
+        } catch (BadLocationException e) {
+            LOGGER.log(Level.WARNING, "Could not insert completion " + completion, e);
+        } finally {
+            accepting = false;
+        }
+        debounceTimer.stop();
+        popup.setVisible(false);
+    }
+
+    /**
+     * @return The word characters directly before the caret, the same characters words are indexed by.
+     */
+    private String wordBeforeCaret() {
+        String text = field.getText();
+        int end = Math.min(field.getCaretPosition(), text.length());
+        int start = end;
+        while (start > 0 && Tokenizer.isWordChar(text.charAt(start - 1))) {
+            start--;
+        }
+        return text.substring(start, end);
+    }
+}
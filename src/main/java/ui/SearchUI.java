@@ -7,24 +7,38 @@ import java.util.HashMap;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
 
 import core.Search;
 import core.SpellChecker;
+import core.Tokenizer;
 
 /**
  * SearchUI provides a graphical user interface for a file search tool.
  * It allows users to select a directory or file, enter a search term,
  * and view files that match the search term along with the number of occurrences.
+ *
+ * Searches, spell checks and indexing run on background threads so the window stays responsive;
+ * their results are applied on the event dispatch thread once they are ready.
  */
 public class SearchUI extends JFrame {
     // Components
-    private JButton searchButton, chooseButton;
+    private JButton chooseButton;
+    private List<JButton> searchButtons = new ArrayList<>();
+    private JLabel statusLabel;
+    private JProgressBar progressBar;
     private JList<String> resultList, searchHistoryList;
     private JTextArea chosenPathDisplay;
     private Search search;
@@ -33,7 +47,20 @@ public class SearchUI extends JFrame {
     private SpellChecker spellChecker;
     private JFrame pieChartFrame;
     private static final Logger LOGGER = Logger.getLogger(SearchUI.class.getName());
-    private JTextField exactSearchField, separateWordsSearchField, wildcardSearchField;
+    private JTextField exactSearchField, separateWordsSearchField, wildcardSearchField, booleanSearchField;
+    // Indexing and removal tasks run one at a time, in the order they were requested
+    private final ExecutorService indexingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-ui-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private SearchWorker currentSearch;
+    private IndexingWorker currentIndexing;
+    private JDialog diagnosticsDialog;
+    // How often the diagnostics panel refreshes while it is open
+    private static final int DIAGNOSTICS_REFRESH_MILLIS = 1000;
+    // How long typing must pause before completions of the current word are looked up
+    private static final int COMPLETION_DEBOUNCE_MILLIS = 150;
 
 
     /**
@@ -66,6 +93,7 @@ public class SearchUI extends JFrame {
     private JButton createSearchButton() {
         JButton button = new JButton("Search");
         button.addActionListener(e -> performSearch());
+        searchButtons.add(button);
         return button;
     }
 
@@ -79,11 +107,17 @@ public class SearchUI extends JFrame {
         exactSearchField = new JTextField(20);
         separateWordsSearchField = new JTextField(20);
         wildcardSearchField = new JTextField(20);
+        booleanSearchField = new JTextField(20);
+        // Suggest indexed words while typing; wildcard patterns are left alone as they match many words anyway
+        for (JTextField field : List.of(exactSearchField, separateWordsSearchField, booleanSearchField)) {
+            new CompletionPopup(field, search::complete, COMPLETION_DEBOUNCE_MILLIS);
+        }
     
         // Create panels for each type of search
         JPanel exactSearchPanel = new JPanel(new BorderLayout());
         JPanel separateWordsSearchPanel = new JPanel(new BorderLayout());
         JPanel wildcardSearchPanel = new JPanel(new BorderLayout());
+        JPanel booleanSearchPanel = new JPanel(new BorderLayout());
     
         // Setup exact search panel
         exactSearchPanel.add(new JLabel("Enter exact phrase:"), BorderLayout.NORTH);
@@ -99,12 +133,18 @@ public class SearchUI extends JFrame {
         wildcardSearchPanel.add(new JLabel("Enter search pattern with wildcards (*):"), BorderLayout.NORTH);
         wildcardSearchPanel.add(wildcardSearchField, BorderLayout.CENTER);
         wildcardSearchPanel.add(createSearchButton(), BorderLayout.SOUTH); // Add search button to panel
+
+        // Setup boolean search panel
+        booleanSearchPanel.add(new JLabel("Enter words combined with AND, OR, NOT and parentheses:"), BorderLayout.NORTH);
+        booleanSearchPanel.add(booleanSearchField, BorderLayout.CENTER);
+        booleanSearchPanel.add(createSearchButton(), BorderLayout.SOUTH); // Add search button to panel
     
         // Initialize the tabbed pane and add the panels as tabs
         searchTabs = new JTabbedPane();
         searchTabs.addTab("Exact", exactSearchPanel);
         searchTabs.addTab("Separate Words", separateWordsSearchPanel);
         searchTabs.addTab("Wildcards", wildcardSearchPanel);
+        searchTabs.addTab("Boolean", booleanSearchPanel);
     
         // Result display area
         resultList = new JList<>();
@@ -133,10 +173,79 @@ public class SearchUI extends JFrame {
         JScrollPane historyScrollPane = new JScrollPane(searchHistoryList);
         historyScrollPane.setBorder(BorderFactory.createTitledBorder("Search History"));
         add(historyScrollPane, BorderLayout.WEST);
+
+        // Status bar showing background search and indexing progress
+        JPanel statusPanel = new JPanel(new BorderLayout(10, 0));
+        statusLabel = new JLabel("Ready");
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setVisible(false);
+        JButton diagnosticsButton = new JButton("Diagnostics");
+        diagnosticsButton.addActionListener(e -> showDiagnostics());
+        statusPanel.add(diagnosticsButton, BorderLayout.WEST);
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(progressBar, BorderLayout.EAST);
+        add(statusPanel, BorderLayout.SOUTH);
     
         pack(); // Pack the components neatly
     }
     
+    /**
+     * Shows a window with the indexing, search latency, cache and index size metrics, refreshed every second
+     * while it is open. The metrics are gathered in the background, as sizing a large index takes a while.
+     */
+    private void showDiagnostics() {
+        if (diagnosticsDialog != null) {
+            diagnosticsDialog.toFront();
+            return;
+        }
+        JTextArea reportArea = new JTextArea(14, 90);
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JButton resetButton = new JButton("Reset Latencies");
+        resetButton.addActionListener(e -> search.getMetrics().resetSearchLatencies());
+
+        diagnosticsDialog = new JDialog(this, "Diagnostics", false);
+        diagnosticsDialog.add(new JScrollPane(reportArea), BorderLayout.CENTER);
+        diagnosticsDialog.add(resetButton, BorderLayout.SOUTH);
+        diagnosticsDialog.pack();
+        diagnosticsDialog.setLocationRelativeTo(this);
+
+        boolean[] refreshing = {false};
+        Timer timer = new Timer(DIAGNOSTICS_REFRESH_MILLIS, e -> {
+            if (refreshing[0]) {
+                return;
+            }
+            refreshing[0] = true;
+            new SwingWorker<String, Void>() {
+                @Override
+                protected String doInBackground() {
+                    return search.getMetrics().report();
+                }
+
+                @Override
+                protected void done() {
+                    refreshing[0] = false;
+                    try {
+                        reportArea.setText(get());
+                    } catch (InterruptedException | ExecutionException ex) {
+                        LOGGER.log(Level.WARNING, "Could not gather diagnostics", ex);
+                    }
+                }
+            }.execute();
+        });
+        timer.setInitialDelay(0);
+        diagnosticsDialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();
+                diagnosticsDialog = null;
+            }
+        });
+        diagnosticsDialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        timer.start();
+        diagnosticsDialog.setVisible(true);
+    }
+
     /**
      * Opens a file chooser to select a directory or file for indexing and searching.
      */
@@ -180,6 +289,7 @@ public class SearchUI extends JFrame {
                                 selectedFiles.add(file.getAbsolutePath());
                             } else if (e.getStateChange() == ItemEvent.DESELECTED) {
                                 selectedFiles.remove(file.getAbsolutePath());
+                                indexingExecutor.execute(() -> search.removeFile(file.getAbsolutePath()));
                             }
                             updateChosenPathDisplay();
                         }
@@ -194,12 +304,25 @@ public class SearchUI extends JFrame {
     }
 
     /**
-     * Updates the display of chosen paths and re-indexes the selected directories or files.
+     * Updates the display of chosen paths and re-indexes the selected directories or files in the background.
+     * Indexing is incremental, so files that have not changed since they were last indexed are skipped.
+     * A re-index that has not finished when the selection changes again is cancelled in favour of the new one.
      */
     private void updateChosenPathDisplay() {
         chosenPathDisplay.setText(String.join("\n", selectedFiles));
-        selectedFiles.forEach(file -> search.indexDirectory(file));
-        searchButton.setEnabled(!selectedFiles.isEmpty());
+        searchButtons.forEach(button -> button.setEnabled(!selectedFiles.isEmpty()));
+        if (currentIndexing != null) {
+            currentIndexing.cancel(false);
+        }
+        currentIndexing = new IndexingWorker(new ArrayList<>(selectedFiles));
+        currentIndexing.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                progressBar.setValue((Integer) event.getNewValue());
+            }
+        });
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        indexingExecutor.execute(currentIndexing);
     }
 
     /**
@@ -244,6 +367,7 @@ public class SearchUI extends JFrame {
 
     /**
      * Performs a search based on the text entered into the searchField and updates the resultList with the search results.
+     * The search runs in the background; a search still running when a new one starts is cancelled and its results discarded.
      */
     private void performSearch() {
         String term;
@@ -260,6 +384,9 @@ public class SearchUI extends JFrame {
             case 2:
                 term = wildcardSearchField.getText().trim();
                 break;
+            case 3:
+                term = booleanSearchField.getText().trim();
+                break;
             default:
                 LOGGER.log(Level.SEVERE, "Unexpected tab selection");
                 JOptionPane.showMessageDialog(this, "Unexpected tab selection.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -270,29 +397,48 @@ public class SearchUI extends JFrame {
             JOptionPane.showMessageDialog(this, "Please enter a search term.", "Empty Search Term", JOptionPane.WARNING_MESSAGE);
             return;
         }
-    
-        // Perform initial search with the current term
-        List<Map.Entry<String, Integer>> results = performSearchBasedOnTab(term, tabIndex);
-        if (results.isEmpty()) {
-            LOGGER.log(Level.INFO, "No results found, initiating spell check for term: {0}", term);
-            List<String> suggestions = spellChecker.suggestCorrections(term);
-            if (!suggestions.isEmpty() && !suggestions.contains(term.toLowerCase())) {
-                suggestions.add("Continue with '" + term + "'");
-                String chosenSuggestion = (String) JOptionPane.showInputDialog(this,
-                        "Did you mean:",
-                        "Spell Check Suggestion",
-                        JOptionPane.QUESTION_MESSAGE,
-                        null,
-                        suggestions.toArray(),
-                        suggestions.get(0));
-                if (chosenSuggestion != null && !chosenSuggestion.equals("Continue with '" + term + "'")) {
-                    term = chosenSuggestion; // User chose to use a suggested correction
-                    // Re-search with the new term
-                    results = performSearchBasedOnTab(term, tabIndex);
-                }
+
+        // A spelling suggestion would replace the whole boolean query, operators included
+        startSearch(term, tabIndex, tabIndex != 3);
+    }
+
+    /**
+     * Starts a background search, superseding any search still in progress.
+     * @param term The search term.
+     * @param tabIndex The index of the tab selecting the type of search.
+     * @param spellCheck Whether to offer spelling suggestions if nothing is found.
+     */
+    private void startSearch(String term, int tabIndex, boolean spellCheck) {
+        if (currentSearch != null) {
+            currentSearch.cancel(true);
+        }
+        statusLabel.setText("Searching for '" + term + "'...");
+        currentSearch = new SearchWorker(term, tabIndex, spellCheck);
+        currentSearch.execute();
+    }
+
+    /**
+     * Shows the results of a finished search, first offering spelling suggestions if nothing was found.
+     */
+    private void finishSearch(String term, int tabIndex, List<Map.Entry<String, Integer>> results, List<String> suggestions) {
+        if (results.isEmpty() && !suggestions.isEmpty() && !suggestions.contains(Tokenizer.lowercase(term))) {
+            suggestions = new ArrayList<>(suggestions);
+            suggestions.add("Continue with '" + term + "'");
+            String chosenSuggestion = (String) JOptionPane.showInputDialog(this,
+                    "Did you mean:",
+                    "Spell Check Suggestion",
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    suggestions.toArray(),
+                    suggestions.get(0));
+            if (chosenSuggestion != null && !chosenSuggestion.equals("Continue with '" + term + "'")) {
+                // User chose to use a suggested correction, re-search with the new term
+                startSearch(chosenSuggestion, tabIndex, false);
+                return;
             }
         }
-    
+
+        statusLabel.setText(String.format("Found %d file(s) for '%s'", results.size(), term));
         updateSearchResults(results);
         updateSearchHistory(term, results);
         LOGGER.log(Level.INFO, "Search completed with term: {0}", term);
@@ -309,6 +455,9 @@ public class SearchUI extends JFrame {
             case 2:
                 LOGGER.log(Level.FINE, "Performing wildcard search for: {0}", term);
                 return search.performWildcardSearch(term);
+            case 3:
+                LOGGER.log(Level.FINE, "Performing boolean search for: {0}", term);
+                return search.performBooleanSearch(term);
             default:
                 LOGGER.log(Level.SEVERE, "Unexpected tab index: {0}", tabIndex);
                 throw new IllegalStateException("Unexpected tab index: " + tabIndex);
@@ -317,6 +466,85 @@ public class SearchUI extends JFrame {
     
     
 
+    /**
+     * Runs a search, and a spell check if it finds nothing, off the event dispatch thread.
+     */
+    private class SearchWorker extends SwingWorker<List<Map.Entry<String, Integer>>, Void> {
+        private final String term;
+        private final int tabIndex;
+        private final boolean spellCheck;
+        private volatile List<String> suggestions = Collections.emptyList();
+
+        SearchWorker(String term, int tabIndex, boolean spellCheck) {
+            this.term = term;
+            this.tabIndex = tabIndex;
+            this.spellCheck = spellCheck;
+        }
+
+        @Override
+        protected List<Map.Entry<String, Integer>> doInBackground() {
+            List<Map.Entry<String, Integer>> results = performSearchBasedOnTab(term, tabIndex);
+            if (results.isEmpty() && spellCheck && !isCancelled()) {
+                LOGGER.log(Level.INFO, "No results found, initiating spell check for term: {0}", term);
+                long start = System.nanoTime();
+                suggestions = spellChecker.suggestCorrections(term);
+                search.getMetrics().latency("spell").record(System.nanoTime() - start);
+            }
+            return results;
+        }
+
+        @Override
+        protected void done() {
+            // A newer search has superseded this one
+            if (isCancelled() || this != currentSearch) {
+                return;
+            }
+            try {
+                finishSearch(term, tabIndex, get(), suggestions);
+            } catch (InterruptedException | ExecutionException e) {
+                // Report what went wrong in the search itself, such as a malformed boolean query
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                LOGGER.log(Level.SEVERE, "Search failed for term: " + term, cause);
+                statusLabel.setText("Search failed");
+                JOptionPane.showMessageDialog(SearchUI.this, "Search failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Re-indexes the selected paths off the event dispatch thread, reporting progress as a percentage of paths done.
+     */
+    private class IndexingWorker extends SwingWorker<Void, String> {
+        private final List<String> paths;
+
+        IndexingWorker(List<String> paths) {
+            this.paths = paths;
+        }
+
+        @Override
+        protected Void doInBackground() {
+            for (int i = 0; i < paths.size() && !isCancelled(); i++) {
+                publish(paths.get(i));
+                search.indexDirectory(paths.get(i));
+                setProgress(100 * (i + 1) / paths.size());
+            }
+            return null;
+        }
+
+        @Override
+        protected void process(List<String> chunks) {
+            statusLabel.setText("Indexing " + chunks.get(chunks.size() - 1));
+        }
+
+        @Override
+        protected void done() {
+            if (this == currentIndexing) {
+                progressBar.setVisible(false);
+                statusLabel.setText(isCancelled() ? "Indexing cancelled" : String.format("Indexed %d path(s)", paths.size()));
+            }
+        }
+    }
+
     /**
      * Converts the array of search history strings into a map.
      * @param searchHistory The array of search history strings.
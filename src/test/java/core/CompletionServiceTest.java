@@ -0,0 +1,47 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * After the index changes, completions come from the previous trie until the rebuild interval has passed, and
+ * then include the new words.
+ */
+class CompletionServiceTest {
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void newWordsAreSuggestedOnceTheTrieIsRebuilt() throws IOException {
+        Files.writeString(directory.resolve("a.txt"), "apple apricot");
+        Files.writeString(directory.resolve("b.txt"), "apple banana");
+        Indexer indexer = new Indexer(true);
+        indexer.indexDirectory(directory.toString());
+        AtomicLong clock = new AtomicLong();
+        CompletionService completions = new CompletionService(List.of(indexer), 10, INTERVAL, clock::get);
+        assertEquals(List.of("apple", "apricot"), completions.complete("Ap"));
+
+        // Files saved while the application runs, such as those picked up by the directory watcher
+        Path apexApple = Files.writeString(directory.resolve("c.txt"), "apex apple");
+        Path apex = Files.writeString(directory.resolve("d.txt"), "apex");
+        indexer.indexFile(apexApple.toString());
+        indexer.indexFile(apex.toString());
+        clock.addAndGet(INTERVAL / 2);
+        assertEquals(List.of("apple", "apricot"), completions.complete("ap"));
+
+        clock.addAndGet(INTERVAL / 2);
+        assertEquals(List.of("apple", "apex", "apricot"), completions.complete("ap"));
+        assertEquals(List.of("apex"), completions.complete("ape"));
+    }
+}
@@ -0,0 +1,89 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Files that change are given new document IDs; a full merge and a save renumber the live documents, so the IDs
+ * of deleted ones do not pile up, without changing what queries find.
+ */
+class DocumentCompactionTest {
+    private static final int FILES = 20;
+    private static final List<String> QUERIES = List.of("common", "common NOT odd", "\"common word\"", "version3");
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Indexes the files, then rewrites and re-indexes every other one a few times, as the directory watcher would.
+     */
+    private Indexer indexWithChanges(Path corpus) throws IOException {
+        Indexer indexer = new Indexer(true);
+        indexer.setSpillDirectory(Files.createDirectories(directory.resolve("spill")).toString());
+        for (int version = 0; version < 4; version++) {
+            for (int file = 0; file < FILES; file++) {
+                if (version == 0 || file % 2 == 1) {
+                    Path path = corpus.resolve("doc" + file + ".txt");
+                    Files.writeString(path, "common word " + (file % 2 == 1 ? "odd " : "") + "version" + version
+                            + " " + "x".repeat(version));
+                    indexer.indexFile(path.toString());
+                }
+            }
+            // Part of the postings end up in segments, part stay in memory
+            indexer.flush();
+        }
+        indexer.removeFile(corpus.resolve("doc0.txt").toString());
+        return indexer;
+    }
+
+    private static Map<String, List<Map.Entry<String, Integer>>> results(Indexer indexer) {
+        return Map.of(QUERIES.get(0), indexer.searchBoolean(QUERIES.get(0)),
+                QUERIES.get(1), indexer.searchBoolean(QUERIES.get(1)),
+                QUERIES.get(2), indexer.searchBoolean(QUERIES.get(2)),
+                QUERIES.get(3), indexer.searchBoolean(QUERIES.get(3)));
+    }
+
+    @Test
+    void forceMergeRenumbersTheLiveDocuments() throws IOException {
+        Path corpus = Files.createDirectories(directory.resolve("corpus"));
+        Indexer indexer = indexWithChanges(corpus);
+        indexer.waitForMerges();
+        assertTrue(indexer.getDocumentIdCount() > indexer.getDocumentCount());
+        Map<String, List<Map.Entry<String, Integer>>> before = results(indexer);
+
+        indexer.forceMerge();
+        assertEquals(FILES - 1, indexer.getDocumentCount());
+        assertEquals(FILES - 1, indexer.getDocumentIdCount());
+        assertEquals(1, indexer.getSegmentCount());
+        assertEquals(before, results(indexer));
+
+        // Indexing carries on after the renumbered documents
+        Path added = Files.writeString(corpus.resolve("added.txt"), "common word version3");
+        indexer.indexFile(added.toString());
+        assertEquals(FILES, indexer.getDocumentIdCount());
+        assertEquals(before.get("version3").size() + 1, indexer.searchBoolean("version3").size());
+    }
+
+    @Test
+    void saveWritesOnlyTheLiveDocuments() throws IOException {
+        Path corpus = Files.createDirectories(directory.resolve("corpus"));
+        Indexer indexer = indexWithChanges(corpus);
+        Map<String, List<Map.Entry<String, Integer>>> before = results(indexer);
+        indexer.save(directory.resolve("index.seg").toString());
+
+        Indexer loaded = new Indexer(true);
+        loaded.load(directory.resolve("index.seg").toString());
+        assertEquals(FILES - 1, loaded.getDocumentIdCount());
+        assertEquals(before, results(loaded));
+        assertEquals(before, results(indexer));
+    }
+}
@@ -0,0 +1,65 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The term and posting counts and the memory estimate read by the metrics are kept up to date as the index changes, and must agree with
+ * counting the whole index after every kind of change.
+ */
+class IndexMetricsTest {
+    @TempDir
+    Path directory;
+
+    private static void assertCounts(Indexer indexer) {
+        long postings = 0;
+        for (int docFreq : indexer.docFreqs().values()) {
+            postings += docFreq;
+        }
+        assertEquals(indexer.terms().size(), indexer.getTermCount());
+        assertEquals(postings, indexer.getPostingCount());
+    }
+
+    @Test
+    void countsFollowFlushesMergesAndDeletions() throws IOException {
+        Path corpus = Files.createDirectories(directory.resolve("corpus"));
+        for (int file = 0; file < 40; file++) {
+            StringBuilder text = new StringBuilder();
+            for (int word = 0; word < 300; word++) {
+                text.append("w").append((file * 7 + word * 13) % 1000).append(' ');
+            }
+            Files.writeString(corpus.resolve("doc" + file + ".txt"), text);
+        }
+        Indexer indexer = new Indexer(true);
+        indexer.setRamBudget(16 << 10);
+        indexer.setSpillDirectory(Files.createDirectories(directory.resolve("spill")).toString());
+        indexer.indexDirectory(corpus.toString(), 2);
+        indexer.waitForMerges();
+        assertTrue(indexer.getSegmentCount() > 1, "the terms should be spread over several segments");
+        assertCounts(indexer);
+
+        // New words in memory, some of them also in the segments
+        Path added = corpus.resolve("added.txt");
+        Files.writeString(added, "w1 w2 fresh newer");
+        indexer.indexFile(added.toString());
+        assertCounts(indexer);
+        assertTrue(indexer.ramBytesUsed() > 0, "the added file's postings are in memory");
+
+        for (String path : List.of("doc0.txt", "doc1.txt", "added.txt")) {
+            indexer.removeFile(corpus.resolve(path).toString());
+            assertCounts(indexer);
+        }
+        indexer.flush();
+        indexer.waitForMerges();
+        assertCounts(indexer);
+        assertEquals(0, indexer.ramBytesUsed());
+    }
+}
@@ -0,0 +1,91 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Indexing under a RAM budget with several workers: the postings must be flushed while the tree is being
+ * indexed, not after all of it has been parsed.
+ */
+class IndexerRamBudgetTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes files of words drawn from a fixed vocabulary, common words far more often than rare ones.
+     */
+    private static void writeCorpus(Path directory, int files, int wordsPerFile) throws IOException {
+        Random random = new Random(21);
+        String[] vocabulary = new String[20_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 3 + random.nextInt(8); word.length() < length; ) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        for (int file = 0; file < files; file++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < wordsPerFile; i++) {
+                text.append(vocabulary[random.nextInt(random.nextInt(vocabulary.length) + 1)]).append(' ');
+            }
+            Files.writeString(directory.resolve("doc" + file + ".txt"), text);
+        }
+    }
+
+    @Test
+    void parallelIndexingWithBudgetMatchesSequentialIndexing() throws IOException {
+        Path corpus = Files.createDirectories(directory.resolve("corpus"));
+        writeCorpus(corpus, 200, 2000);
+        Indexer sequential = new Indexer(true);
+        sequential.indexDirectory(corpus.toString(), 1);
+        Indexer parallel = new Indexer(true);
+        parallel.setRamBudget(256 << 10);
+        parallel.setSpillDirectory(Files.createDirectories(directory.resolve("spill")).toString());
+        parallel.indexDirectory(corpus.toString(), 4);
+        parallel.waitForMerges();
+
+        assertTrue(parallel.getSegmentCount() > 1, "the budget should have been exceeded several times");
+        for (String query : List.of("a*", "*e", "b*c")) {
+            assertEquals(sequential.searchWithWildcards(query), parallel.searchWithWildcards(query), query);
+        }
+    }
+
+    /**
+     * The corpus is several times larger than the heap of a separate JVM once parsed, so the run only succeeds if
+     * parsed files are applied and flushed as they arrive.
+     */
+    @Test
+    void parallelIndexingOfMoreThanTheHeapSucceeds() throws IOException, InterruptedException {
+        Path corpus = Files.createDirectories(directory.resolve("corpus"));
+        writeCorpus(corpus, 200, 20_000);
+        Path output = directory.resolve("output.txt");
+        Path errors = directory.resolve("errors.txt");
+        Path queries = directory.resolve("queries.txt");
+        Files.writeString(queries, "wildcard: a*\n");
+        Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx48m", "-Djava.io.tmpdir=" + directory, "-cp", System.getProperty("java.class.path"),
+                "app.BatchMain", "--ram-budget", "4", "--index-workers", "4", "--queries", queries.toString(),
+                corpus.toString())
+                .redirectOutput(output.toFile())
+                .redirectError(errors.toFile())
+                .start();
+        assertTrue(process.waitFor(5, TimeUnit.MINUTES), "indexing did not finish");
+        String errorOutput = Files.readString(errors, StandardCharsets.UTF_8);
+        assertEquals(0, process.exitValue(), errorOutput);
+        assertTrue(!errorOutput.contains("OutOfMemoryError"), errorOutput);
+        assertTrue(Files.readString(output, StandardCharsets.UTF_8).contains("\"mode\":\"wildcard\""));
+    }
+}
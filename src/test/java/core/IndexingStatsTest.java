@@ -0,0 +1,42 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A file whose size is unchanged is hashed before it is tokenized; its bytes are counted once whether or not it
+ * turns out to have changed, so the bytes read and the throughput match the size of the files visited.
+ */
+class IndexingStatsTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void filesHashedAndThenTokenizedAreCountedOnce() throws IOException {
+        Path file = Files.writeString(directory.resolve("a.txt"), "apple banana");
+        long size = Files.size(file);
+        Indexer indexer = new Indexer(true);
+        indexer.indexFile(file.toString());
+        assertEquals(size, indexer.getTotalIndexingStats().getBytes());
+
+        // Same size, same content, newer modification time: hashed and skipped
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        indexer.indexFile(file.toString());
+        assertEquals(2 * size, indexer.getTotalIndexingStats().getBytes());
+        assertEquals(1, indexer.getTotalIndexingStats().getSkipped());
+
+        // Same size, different content: hashed, then tokenized
+        Files.writeString(file, "cherry dates");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 4000));
+        indexer.indexFile(file.toString());
+        assertEquals(3 * size, indexer.getTotalIndexingStats().getBytes());
+        assertEquals(1, indexer.searchPhrase("cherry").size());
+    }
+}
@@ -0,0 +1,151 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Intersecting a rare term with a common one must skip over the postings of the common term rather than decode
+ * all of them, both in memory and in a segment.
+ */
+class PostingsSkipTest {
+    private static final int DOCS = 100_000;
+    private static final int[] RARE_DOCS = {5, 4_000, 33_333, 50_001, 77_777, 99_998};
+
+    @TempDir
+    Path directory;
+
+    /**
+     * The common term is in every document, once at position docId % 7 and once 100 words later.
+     */
+    private static PostingList common() {
+        PostingList postings = new PostingList(true);
+        for (int docId = 0; docId < DOCS; docId++) {
+            postings.add(docId, 2, new int[] {docId % 7, docId % 7 + 100});
+        }
+        return postings;
+    }
+
+    private static PostingList rare() {
+        PostingList postings = new PostingList(true);
+        for (int docId : RARE_DOCS) {
+            postings.add(docId, 1, new int[] {0});
+        }
+        return postings;
+    }
+
+    /**
+     * Runs rare AND common, checking the matches and the positions of the common term in each of them.
+     */
+    private static void assertConjunction(PostingsCursor rare, PostingsCursor common) {
+        ConjunctionPostingsCursor conjunction = new ConjunctionPostingsCursor(rare, common);
+        List<Integer> matches = new ArrayList<>();
+        while (conjunction.next()) {
+            matches.add(conjunction.docId());
+            assertEquals(3, conjunction.freq());
+            assertEquals(conjunction.docId() % 7, common.nextPosition());
+            assertEquals(conjunction.docId() % 7 + 100, common.nextPosition());
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int docId : RARE_DOCS) {
+            expected.add(docId);
+        }
+        assertEquals(expected, matches);
+    }
+
+    /**
+     * Each match decodes at most one block of the common term's postings.
+     */
+    private static void assertSkipped(EncodedPostingsCursor common) {
+        int decoded = common.decodedCount();
+        assertTrue(decoded <= RARE_DOCS.length * PostingList.SKIP_INTERVAL,
+                "decoded " + decoded + " of " + DOCS + " postings");
+    }
+
+    @Test
+    void inMemoryConjunctionSkipsCommonPostings() {
+        EncodedPostingsCursor common = (EncodedPostingsCursor) common().cursor();
+        assertConjunction(rare().cursor(), common);
+        assertSkipped(common);
+    }
+
+    @Test
+    void segmentConjunctionSkipsCommonPostings() throws IOException {
+        Path file = directory.resolve("skip.seg");
+        Map<String, PostingList> postings = Map.of("common", common(), "rare", rare());
+        IndexSegment.write(file, null, List.of(), postings.keySet(), term -> postings.get(term).cursor(), true);
+        IndexSegment segment = IndexSegment.open(file);
+
+        EncodedPostingsCursor common = (EncodedPostingsCursor) segment.postings("common");
+        assertConjunction(segment.postings("rare"), common);
+        assertSkipped(common);
+    }
+
+    @Test
+    void liveAndMergedCursorsPassSkipsThrough() throws IOException {
+        // The first half of the documents is in a segment, the second half in memory, and every third one is deleted
+        Path file = directory.resolve("half.seg");
+        PostingList firstHalf = new PostingList(true);
+        PostingList secondHalf = new PostingList(true);
+        for (int docId = 0; docId < DOCS; docId++) {
+            (docId < DOCS / 2 ? firstHalf : secondHalf).add(docId, 2, new int[] {docId % 7, docId % 7 + 100});
+        }
+        IndexSegment.write(file, null, List.of(), List.of("common"), term -> firstHalf.cursor(), true);
+        IndexSegment segment = IndexSegment.open(file);
+        BitSet deleted = new BitSet();
+        for (int docId = 0; docId < DOCS; docId += 3) {
+            deleted.set(docId);
+        }
+
+        EncodedPostingsCursor fromSegment = (EncodedPostingsCursor) segment.postings("common");
+        EncodedPostingsCursor fromMemory = (EncodedPostingsCursor) secondHalf.cursor();
+        PostingsCursor common = new LivePostingsCursor(new MergedPostingsCursor(fromSegment, fromMemory), deleted);
+        ConjunctionPostingsCursor conjunction = new ConjunctionPostingsCursor(rare().cursor(), common);
+        List<Integer> matches = new ArrayList<>();
+        while (conjunction.next()) {
+            matches.add(conjunction.docId());
+            assertEquals(conjunction.docId() % 7, common.nextPosition());
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int docId : RARE_DOCS) {
+            if (!deleted.get(docId)) {
+                expected.add(docId);
+            }
+        }
+        assertEquals(expected, matches);
+        assertTrue(fromSegment.decodedCount() + fromMemory.decodedCount() <= 2 * RARE_DOCS.length * PostingList.SKIP_INTERVAL,
+                "decoded " + (fromSegment.decodedCount() + fromMemory.decodedCount()) + " of " + DOCS + " postings");
+    }
+
+    @Test
+    void advanceFindsEveryTarget() {
+        PostingList postings = new PostingList(false);
+        for (int docId = 0; docId < 10_000; docId += 3) {
+            postings.add(docId, 1 + docId % 4);
+        }
+        for (int target = 0; target < 10_000; target += 97) {
+            PostingsCursor cursor = postings.cursor();
+            int expected = (target + 2) / 3 * 3;
+            assertTrue(cursor.advance(target));
+            assertEquals(expected, cursor.docId());
+            assertEquals(1 + expected % 4, cursor.freq());
+            // Skipping ahead again from where the cursor stands
+            if (cursor.advance(expected + 500)) {
+                assertEquals((expected + 500 + 2) / 3 * 3, cursor.docId());
+            } else {
+                assertTrue(expected + 500 > 9_999);
+            }
+        }
+        PostingsCursor cursor = postings.cursor();
+        assertTrue(!cursor.advance(10_000));
+    }
+}
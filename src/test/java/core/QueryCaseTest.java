@@ -0,0 +1,50 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Queries are lowercased like indexed words, only in the ASCII range, so the default locale does not change what
+ * they find: under a Turkish locale {@code "I".toLowerCase()} is a dotless ı, which no indexed word contains.
+ */
+class QueryCaseTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> paths(List<? extends Map.Entry<String, ?>> results) {
+        return results.stream().map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
+    @Test
+    void capitalizedQueriesFindIndexedWordsUnderATurkishLocale() throws IOException {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            Path file = Files.writeString(directory.resolve("a.txt"), "Index IMAGE");
+            Indexer indexer = new Indexer(true);
+            indexer.indexFile(file.toString());
+            List<String> found = List.of(file.toString());
+            try (Search search = new Search(indexer)) {
+                assertEquals(found, paths(search.performSearch("INDEX")));
+                assertEquals(found, paths(search.performSearch("\"INDEX image\"")));
+                assertEquals(found, paths(search.performBooleanSearch("index AND IMAGE")));
+                assertEquals(found, paths(search.performCommaSeparatedSearch("INDEX")));
+                assertEquals(found, paths(search.performWildcardSearch("IND*")));
+                assertEquals(found, paths(search.performRankedSearch("IMAGE", 10)));
+                assertEquals(List.of("image", "index"), search.complete("I"));
+            }
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A saved index remembers the directories it was indexed from, so that after a load the changes made to them
+ * in the meantime can be picked up and further changes watched.
+ */
+class SavedIndexTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> paths(List<Map.Entry<String, Integer>> results) {
+        return results.stream().map(Map.Entry::getKey).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void refreshAfterLoadPicksUpChangesAndWatchesTheSavedDirectories() throws IOException, InterruptedException {
+        Path corpus = Files.createDirectories(directory.resolve("corpus"));
+        Path kept = Files.writeString(corpus.resolve("kept.txt"), "apple banana");
+        Path changed = Files.writeString(corpus.resolve("changed.txt"), "apple cherry");
+        Path deleted = Files.writeString(corpus.resolve("deleted.txt"), "apple date");
+        Path saved = directory.resolve("index.seg");
+        Indexer before = new Indexer(true);
+        before.indexDirectory(corpus.toString());
+        before.save(saved.toString());
+
+        // Changes made while the application is closed
+        Files.writeString(changed, "banana elderberry fig");
+        Files.delete(deleted);
+        Path added = Files.writeString(corpus.resolve("added.txt"), "apple grape");
+
+        Indexer after = new Indexer(true);
+        after.load(saved.toString());
+        assertEquals(List.of(corpus.toString()), after.getRoots());
+        assertEquals(paths(List.of(Map.entry(changed.toString(), 1), Map.entry(deleted.toString(), 1),
+                Map.entry(kept.toString(), 1))), paths(after.searchPhrase("apple")));
+
+        after.startWatching(50);
+        try {
+            after.refresh(2);
+            assertEquals(List.of(added.toString(), kept.toString()), paths(after.searchPhrase("apple")));
+            assertEquals(List.of(changed.toString()), paths(after.searchPhrase("elderberry")));
+
+            // The loaded directory is watched again
+            Path later = Files.writeString(corpus.resolve("later.txt"), "honeydew");
+            for (int wait = 0; wait < 200 && after.searchPhrase("honeydew").isEmpty(); wait++) {
+                Thread.sleep(50);
+            }
+            assertEquals(List.of(later.toString()), paths(after.searchPhrase("honeydew")));
+        } finally {
+            after.stopWatching();
+        }
+    }
+
+    @Test
+    void refreshRemovesDirectoriesThatNoLongerExist() throws IOException {
+        Path corpus = Files.createDirectories(directory.resolve("gone"));
+        Files.writeString(corpus.resolve("a.txt"), "apple");
+        Path saved = directory.resolve("index.seg");
+        Indexer before = new Indexer(true);
+        before.indexDirectory(corpus.toString());
+        before.save(saved.toString());
+        Files.delete(corpus.resolve("a.txt"));
+        Files.delete(corpus);
+
+        Indexer after = new Indexer(true);
+        after.load(saved.toString());
+        after.refresh(1);
+        assertEquals(List.of(), after.searchPhrase("apple"));
+        assertEquals(List.of(), after.getRoots());
+    }
+}
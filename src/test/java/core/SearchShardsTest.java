@@ -0,0 +1,75 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A Search over several shards splits the files between empty indexers and stops its shard threads on close;
+ * exact searches also work on indexes that do not record positions.
+ */
+class SearchShardsTest {
+    @TempDir
+    Path directory;
+
+    private static long shardThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("search-shard") && thread.isAlive())
+                .count();
+    }
+
+    @Test
+    void shardsThatHoldDocumentsAreRejected() throws IOException {
+        Path file = Files.writeString(directory.resolve("a.txt"), "apple banana");
+        Indexer full = new Indexer(true);
+        full.indexFile(file.toString());
+        Indexer empty = new Indexer(true);
+
+        assertThrows(IllegalArgumentException.class, () -> new Search(List.of(empty, full)));
+        assertThrows(IllegalStateException.class, () -> full.setShard(0, 2));
+        // A single index is not split, so it may hold documents already
+        try (Search search = new Search(full)) {
+            assertEquals(1, search.performSearch("apple").size());
+        }
+    }
+
+    @Test
+    void exactSearchWithoutPositionsFindsFilesWithAllWords() throws IOException {
+        Path both = Files.writeString(directory.resolve("both.txt"), "banana and apple");
+        Path one = Files.writeString(directory.resolve("one.txt"), "apple only");
+        Indexer indexer = new Indexer();
+        indexer.indexFile(both.toString());
+        indexer.indexFile(one.toString());
+        try (Search search = new Search(indexer)) {
+            assertEquals(List.of(Map.entry(both.toString(), 2)), search.performSearch("apple banana"));
+            assertEquals(2, search.performSearch("apple").size());
+        }
+    }
+
+    @Test
+    void closeStopsTheShardThreads() throws IOException, InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(directory.resolve("doc" + i + ".txt"), "apple banana " + i);
+        }
+        long before = shardThreads();
+        Search search = new Search(List.of(new Indexer(true), new Indexer(true), new Indexer(true)));
+        search.indexDirectory(directory.toString(), 3);
+        assertEquals(20, search.performSearch("apple").size());
+        assertTrue(shardThreads() > before);
+
+        search.close();
+        for (int wait = 0; wait < 100 && shardThreads() > before; wait++) {
+            Thread.sleep(10);
+        }
+        assertEquals(before, shardThreads());
+    }
+}
@@ -0,0 +1,86 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Segments larger than a file may hold are written in parts that split the terms between them, whether they
+ * are flushed, merged or saved.
+ */
+class SegmentPartsTest {
+    private static final List<String> QUERIES = List.of("w1", "w77", "w250 AND w3", "\"w10 w17\"");
+
+    @TempDir
+    Path directory;
+
+    private Path corpus(int files) throws IOException {
+        Path corpus = Files.createDirectories(directory.resolve("corpus" + files));
+        for (int file = 0; file < files; file++) {
+            StringBuilder text = new StringBuilder();
+            for (int word = 0; word < 400; word++) {
+                text.append("w").append((file * 31 + word * 7) % 500).append(' ');
+            }
+            Files.writeString(corpus.resolve("doc" + file + ".txt"), text);
+        }
+        return corpus;
+    }
+
+    private static Indexer indexer(Path corpus, Path spill) {
+        Indexer indexer = new Indexer(true);
+        indexer.setSpillDirectory(spill.toString());
+        indexer.setMaxPartBytes(8 << 10);
+        indexer.indexDirectory(corpus.toString());
+        return indexer;
+    }
+
+    private static Map<String, List<Map.Entry<String, Integer>>> results(Indexer indexer) {
+        return Map.of(QUERIES.get(0), indexer.searchBoolean(QUERIES.get(0)),
+                QUERIES.get(1), indexer.searchBoolean(QUERIES.get(1)),
+                QUERIES.get(2), indexer.searchBoolean(QUERIES.get(2)),
+                QUERIES.get(3), indexer.searchBoolean(QUERIES.get(3)));
+    }
+
+    @Test
+    void forceMergeWritesSeveralParts() throws IOException {
+        Indexer indexer = indexer(corpus(60), Files.createDirectories(directory.resolve("spill")));
+        Map<String, List<Map.Entry<String, Integer>>> before = results(indexer);
+        assertTrue(before.values().stream().noneMatch(List::isEmpty), "every query should find files");
+        indexer.forceMerge();
+        assertTrue(indexer.getSegmentCount() > 1, "the merged segment should have been split");
+        assertEquals(before, results(indexer));
+    }
+
+    @Test
+    void saveWritesSeveralPartsAndRemovesStaleOnes() throws IOException {
+        Path spill = Files.createDirectories(directory.resolve("spill"));
+        Path saved = directory.resolve("index.seg");
+        Indexer large = indexer(corpus(60), spill);
+        Map<String, List<Map.Entry<String, Integer>>> expected = results(large);
+        large.save(saved.toString());
+        assertTrue(Files.exists(directory.resolve("index.seg.1")));
+
+        Indexer loaded = new Indexer(true);
+        loaded.load(saved.toString());
+        assertEquals(large.getSegmentCount(), loaded.getSegmentCount());
+        assertEquals(expected, results(loaded));
+
+        // A smaller index saved in the same place must not be loaded with the parts of the larger one
+        Indexer small = new Indexer(true);
+        Path file = Files.writeString(Files.createDirectories(directory.resolve("small")).resolve("a.txt"), "w1 w3");
+        small.indexFile(file.toString());
+        small.save(saved.toString());
+        assertTrue(!Files.exists(directory.resolve("index.seg.1")));
+        Indexer reloaded = new Indexer(true);
+        reloaded.load(saved.toString());
+        assertEquals(List.of(Map.entry(file.toString(), 1)), reloaded.searchBoolean("w1"));
+    }
+}